@@ -0,0 +1,22 @@
+package com.atlas.pharmacy.benchmark;
+
+import com.atlas.pharmacy.security.UserDetailsServiceImpl;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * The data layer of the application without Vaadin, security filters or scheduled jobs, so benchmarks
+ * measure the services and not the background work around them.
+ */
+@SpringBootApplication(scanBasePackages = "com.atlas.pharmacy.data", excludeName = {
+        "com.vaadin.flow.spring.SpringBootAutoConfiguration",
+        "com.vaadin.flow.spring.SpringSecurityAutoConfiguration",
+        "com.vaadin.flow.spring.VaadinScopesConfig"
+})
+@EntityScan("com.atlas.pharmacy.data.entity")
+@EnableJpaRepositories("com.atlas.pharmacy.data.service")
+@Import(UserDetailsServiceImpl.class)
+public class BenchmarkApplication {
+}
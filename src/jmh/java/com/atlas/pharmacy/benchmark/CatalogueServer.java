@@ -0,0 +1,55 @@
+package com.atlas.pharmacy.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Local stand-in for the Health Canada API, serving a synthetic catalogue so benchmarks never touch the network.
+ */
+final class CatalogueServer implements AutoCloseable {
+
+    private static final String[] INGREDIENTS = {"ACETAMINOPHEN", "IBUPROFEN", "AMOXICILLIN", "ATORVASTATIN",
+            "METFORMIN", "LISINOPRIL", "LEVOTHYROXINE", "AMLODIPINE", "OMEPRAZOLE", "SALBUTAMOL"};
+
+    private final HttpServer server;
+
+    CatalogueServer(int drugs) throws IOException {
+        byte[] body = catalogue(drugs);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static byte[] catalogue(int drugs) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < drugs; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            String ingredient = INGREDIENTS[i % INGREDIENTS.length] + " " + (i / 10);
+            json.append("{\"dosage_unit\":\"\",\"dosage_value\":\"\",\"drug_code\":").append(100000 + i)
+                    .append(",\"ingredient_name\":\"").append(ingredient)
+                    .append("\",\"strength\":\"").append(5 * (1 + i % 40)).append("\",\"strength_unit\":\"MG\"}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,50 @@
+package com.atlas.pharmacy.benchmark;
+
+import com.atlas.pharmacy.security.PasswordEncoders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to check one password, per algorithm and cost, to choose {@code atlas.security.*} settings.
+ * <p>
+ * A login storm on one processor is served at about one login per score, so the cost should keep the
+ * score well inside the login latency budget. Run with {@code -Dbenchmark.args="PasswordEncoderBenchmark"}
+ * to leave out the service benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordEncoderBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"bcrypt:8", "bcrypt:10", "bcrypt:12", "pbkdf2:310000"})
+    public String encoder;
+
+    private PasswordEncoder passwordEncoder;
+    private String hash;
+
+    @Setup(Level.Trial)
+    public void start() {
+        String[] setting = encoder.split(":");
+        int cost = Integer.parseInt(setting[1]);
+        passwordEncoder = PasswordEncoders.create(setting[0], PasswordEncoders.BCRYPT.equals(setting[0]) ? cost : 10,
+                PasswordEncoders.PBKDF2.equals(setting[0]) ? cost : 310000);
+        hash = passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches(PASSWORD, hash);
+    }
+}
@@ -0,0 +1,75 @@
+package com.atlas.pharmacy.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fails the build when a benchmark got slower than its baseline by more than the tolerance.
+ * <p>
+ * Results and baseline are JMH JSON result files; benchmarks are matched by name and parameters. Without a
+ * baseline the results become the baseline. Delete the baseline file to accept new numbers.
+ * <p>
+ * Arguments: result file, baseline file, tolerance as a fraction (0.10 allows 10% slower).
+ */
+public final class RegressionGate {
+
+    private RegressionGate() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path result = Path.of(args[0]);
+        Path baseline = Path.of(args[1]);
+        double tolerance = Double.parseDouble(args[2]);
+
+        if (Files.notExists(baseline)) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("No benchmark baseline yet, saved the results as " + baseline);
+            return;
+        }
+
+        Map<String, Double> expected = scores(baseline);
+        int regressions = 0;
+        for (Map.Entry<String, Double> actual : scores(result).entrySet()) {
+            Double before = expected.get(actual.getKey());
+            if (before == null) {
+                System.out.printf("NEW   %s %.3f%n", actual.getKey(), actual.getValue());
+                continue;
+            }
+            double change = (actual.getValue() - before) / before;
+            boolean regressed = change > tolerance;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-5s %s %.3f -> %.3f (%+.1f%%)%n", regressed ? "SLOW" : "OK", actual.getKey(), before,
+                    actual.getValue(), change * 100);
+        }
+        if (regressions > 0) {
+            System.err.printf("%d benchmark(s) regressed by more than %.0f%%%n", regressions, tolerance * 100);
+            System.exit(1);
+        }
+    }
+
+    // Average-time scores, so lower is better
+    private static Map<String, Double> scores(Path file) throws IOException {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            scores.put(key.toString(), run.path("primaryMetric").path("score").asDouble());
+        }
+        return scores;
+    }
+}
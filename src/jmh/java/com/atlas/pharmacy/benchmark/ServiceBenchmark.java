@@ -0,0 +1,147 @@
+package com.atlas.pharmacy.benchmark;
+
+import com.atlas.pharmacy.data.entity.Patient;
+import com.atlas.pharmacy.data.entity.Prescription;
+import com.atlas.pharmacy.data.search.CatalogueDrug;
+import com.atlas.pharmacy.data.service.DrugService;
+import com.atlas.pharmacy.data.service.PatientService;
+import com.atlas.pharmacy.data.service.PrescriptionService;
+import com.atlas.pharmacy.security.UserDetailsServiceImpl;
+import jakarta.persistence.criteria.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service hot paths against an embedded H2 holding {@code patients} generated patients.
+ * <p>
+ * Run with {@code mvn -Pbenchmark verify}; pass {@code -Dbenchmark.args="-p patients=100000"} for other scales.
+ * Queries rotate between invocations so per-query caches do not flatter the numbers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ServiceBenchmark {
+
+    private static final String[] DRUG_QUERIES = {"acet", "ibuprofen 12", "amox", "100012", "statin", "m"};
+    private static final String[] PATIENT_QUERIES = {"smi", "jen", "tremblay", "wong", "john", "moh"};
+    private static final PageRequest FIRST_PAGE = PageRequest.of(0, 50);
+
+    @Param({"10000"})
+    public int patients;
+
+    @Param({"50000"})
+    public int catalogueSize;
+
+    private ConfigurableApplicationContext context;
+    private CatalogueServer catalogueServer;
+    private DrugService drugService;
+    private PatientService patientService;
+    private PrescriptionService prescriptionService;
+    private UserDetailsServiceImpl userDetailsService;
+    private Specification<Patient> filters;
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        catalogueServer = new CatalogueServer(catalogueSize);
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.main.banner-mode=off",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=warn",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--atlas.drug-catalogue.url=" + catalogueServer.url(),
+                        "--atlas.drug-catalogue.local-copy="
+                                + Files.createTempDirectory("atlas-benchmark").resolve("drug-catalogue.json"),
+                        "--atlas.generator.enabled=true",
+                        "--atlas.generator.patients=" + patients);
+
+        drugService = context.getBean(DrugService.class);
+        patientService = context.getBean(PatientService.class);
+        prescriptionService = context.getBean(PrescriptionService.class);
+        userDetailsService = context.getBean(UserDetailsServiceImpl.class);
+        drugService.fetchDrugs();
+
+        // The criteria PatientView.Filters builds for a date of birth range and two occupations
+        LocalDate from = LocalDate.now().minusYears(60);
+        LocalDate to = LocalDate.now().minusYears(30);
+        filters = (root, query, criteriaBuilder) -> criteriaBuilder.and(
+                criteriaBuilder.greaterThanOrEqualTo(root.get("dateOfBirth"), criteriaBuilder.literal(from)),
+                criteriaBuilder.greaterThanOrEqualTo(criteriaBuilder.literal(to), root.get("dateOfBirth")),
+                criteriaBuilder.or(new Predicate[]{
+                        criteriaBuilder.equal(criteriaBuilder.literal("Mortarman"), root.get("occupation")),
+                        criteriaBuilder.equal(criteriaBuilder.literal("Scale Attendant"), root.get("occupation"))}));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+        catalogueServer.close();
+    }
+
+    @Benchmark
+    public List<CatalogueDrug> searchDrugs() {
+        return drugService.searchDrugs(next(DRUG_QUERIES));
+    }
+
+    @Benchmark
+    public Page<Patient> listPatientsBySearch() {
+        return patientService.list(FIRST_PAGE, next(PATIENT_QUERIES), null);
+    }
+
+    @Benchmark
+    public Page<Patient> listPatientsByFilters() {
+        return patientService.list(PageRequest.of(0, 50, Sort.by("lastName")), "", filters);
+    }
+
+    @Benchmark
+    public Page<Patient> listPatientsBySearchAndFilters() {
+        return patientService.list(FIRST_PAGE, next(PATIENT_QUERIES), filters);
+    }
+
+    @Benchmark
+    public Page<Prescription> listPrescriptionsByPatientName() {
+        return prescriptionService.list(FIRST_PAGE, next(PATIENT_QUERIES));
+    }
+
+    @Benchmark
+    public Map<String, Long> countPatientsByOccupation() {
+        return patientService.countPatientsByOccupation();
+    }
+
+    @Benchmark
+    public Map<String, Long> countPrescriptionsByDrug() {
+        return prescriptionService.countPrescriptionsByDrug();
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername() {
+        return userDetailsService.loadUserByUsername("admin");
+    }
+
+    private String next(String[] values) {
+        return values[invocation++ % values.length];
+    }
+}
@@ -3,6 +3,7 @@ package com.atlas.pharmacy;
 import com.atlas.pharmacy.data.service.PatientRepository;
 import com.vaadin.flow.component.dependency.NpmPackage;
 import com.vaadin.flow.component.page.AppShellConfigurator;
+import com.vaadin.flow.component.page.Push;
 import com.vaadin.flow.server.PWA;
 import com.vaadin.flow.theme.Theme;
 import org.springframework.boot.SpringApplication;
@@ -12,6 +13,7 @@ import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDataba
 import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import javax.sql.DataSource;
 
@@ -19,9 +21,12 @@ import javax.sql.DataSource;
  * The entry point of the Spring Boot application.
  * <p>
  * Use the @PWA annotation make the application installable on phones, tablets
- * and some desktop browsers.
+ * and some desktop browsers. Server push lets the dashboard receive updates
+ * without polling.
  */
 @SpringBootApplication
+@EnableScheduling
+@Push
 @Theme(value = "atlas")
 @NpmPackage(value = "line-awesome", version = "1.3.0")
 @PWA(
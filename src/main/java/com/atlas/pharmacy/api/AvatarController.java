@@ -0,0 +1,91 @@
+package com.atlas.pharmacy.api;
+
+import com.atlas.pharmacy.data.service.ProfilePictureService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+
+/**
+ * Profile pictures and their thumbnails, for avatars.
+ * <p>
+ * The ETag is made from the picture's version, so a revalidation is answered with 304 without reading any
+ * image. Links carry the version too, which lets browsers keep a picture until it is replaced. Thumbnails
+ * are precomputed; the original is streamed to the client in chunks as it is read.
+ */
+@RestController
+@RequestMapping("/avatars")
+public class AvatarController {
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(30)).cachePrivate();
+
+    private final ProfilePictureService profilePictureService;
+
+    public AvatarController(ProfilePictureService profilePictureService) {
+        this.profilePictureService = profilePictureService;
+    }
+
+    /**
+     * Link to a user's avatar thumbnail.
+     *
+     * @param userId  User identifier.
+     * @param version Current version of the user's picture, so a replaced picture gets a new link.
+     * @param size    Edge length in pixels.
+     * @return Path relative to the application root.
+     */
+    public static String link(Long userId, int version, int size) {
+        return "avatars/" + userId + "?size=" + ProfilePictureService.thumbnailSize(size) + "&v=" + version;
+    }
+
+    @GetMapping("/{userId}")
+    public ResponseEntity<byte[]> thumbnail(@PathVariable Long userId, @RequestParam(defaultValue = "64") int size,
+                                            WebRequest request) {
+        int thumbnailSize = ProfilePictureService.thumbnailSize(size);
+        String etag = etag(userId, thumbnailSize);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        byte[] thumbnail = profilePictureService.getThumbnail(userId, thumbnailSize)
+                .orElseThrow(AvatarController::notFound);
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .eTag(etag)
+                .cacheControl(CACHE_CONTROL)
+                .body(thumbnail);
+    }
+
+    @GetMapping("/{userId}/original")
+    public ResponseEntity<StreamingResponseBody> original(@PathVariable Long userId, WebRequest request) {
+        String etag = etag(userId, 0);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        // Pictures are uploaded in several formats; browsers sniff the actual one
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .eTag(etag)
+                .cacheControl(CACHE_CONTROL)
+                .body(out -> profilePictureService.writeOriginal(userId, out));
+    }
+
+    private String etag(Long userId, int size) {
+        int version = profilePictureService.getVersion(userId).orElseThrow(AvatarController::notFound);
+        return "\"" + userId + "-" + version + "-" + size + "\"";
+    }
+
+    private static ResponseStatusException notFound() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "No profile picture");
+    }
+}
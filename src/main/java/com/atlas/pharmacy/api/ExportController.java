@@ -0,0 +1,60 @@
+package com.atlas.pharmacy.api;
+
+import com.atlas.pharmacy.data.export.ExportFormat;
+import com.atlas.pharmacy.data.export.ExportService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+/**
+ * Download endpoints for whole-table exports, for administrators.
+ * <p>
+ * The body is written on an MVC async thread straight to the response as rows are read, so a download of
+ * millions of rows neither buffers in memory nor holds a request thread.
+ */
+@RestController
+@RequestMapping("/export")
+public class ExportController {
+
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping("/patients.{extension}")
+    public ResponseEntity<StreamingResponseBody> patients(@PathVariable String extension) {
+        ExportFormat format = format(extension);
+        return download("patients", format, out -> exportService.exportPatients(format, out));
+    }
+
+    @GetMapping("/prescriptions.{extension}")
+    public ResponseEntity<StreamingResponseBody> prescriptions(@PathVariable String extension) {
+        ExportFormat format = format(extension);
+        return download("prescriptions", format, out -> exportService.exportPrescriptions(format, out));
+    }
+
+    private static ExportFormat format(String extension) {
+        return ExportFormat.fromExtension(extension)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown export format " + extension));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> download(String name, ExportFormat format,
+                                                                  StreamingResponseBody body) {
+        String fileName = name + "-" + LocalDate.now() + "." + format.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,85 @@
+package com.atlas.pharmacy.concurrent;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Stops calling a failing dependency for a while, so callers fail fast and fall back instead of waiting
+ * out timeouts.
+ * <p>
+ * Closed, calls go through and consecutive failures are counted; at the threshold the breaker opens. Open,
+ * calls are refused until the open duration has passed. Then a single trial call is let through (half
+ * open): its success closes the breaker, its failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private Instant openedAt;
+
+    /**
+     * @param name             Dependency name, for messages.
+     * @param failureThreshold Consecutive failures that open the breaker.
+     * @param openDuration     How long calls are refused before a trial call.
+     */
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this(name, failureThreshold, openDuration, Clock.systemUTC());
+    }
+
+    CircuitBreaker(String name, int failureThreshold, Duration openDuration, Clock clock) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    /**
+     * Ask to make a call. Every permitted call must be followed by {@link #onSuccess()} or {@link #onFailure()}.
+     *
+     * @return Whether the call may be made.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.instant().isBefore(openedAt.plus(openDuration))) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                return true;
+            default:
+                // A trial call is already in flight
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.instant();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,73 @@
+package com.atlas.pharmacy.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual thread factories and executors, looked up reflectively so the application still builds and runs
+ * on Java 17, where they do not exist. Only call these when virtual threads are enabled.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Whether the running JVM has virtual threads, that is Java 21 or later.
+     */
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Create an executor starting a new virtual thread for every task.
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        return (ExecutorService) invoke(method(Executors.class, "newVirtualThreadPerTaskExecutor"), null);
+    }
+
+    /**
+     * Create a factory of virtual threads named with a prefix and a counter, such as {@code http-0}.
+     *
+     * @param prefix Thread name prefix.
+     */
+    public static ThreadFactory factory(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = invoke(method(Thread.class, "ofVirtual"), null);
+            builder = invoke(builderType.getMethod("name", String.class, long.class), builder, prefix, 0L);
+            return (ThreadFactory) invoke(builderType.getMethod("factory"), builder);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw unsupported(e);
+        }
+    }
+
+    private static Method method(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            throw unsupported(e);
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not create virtual threads", e);
+        }
+    }
+
+    private static IllegalStateException unsupported(Exception cause) {
+        return new IllegalStateException("Virtual threads need Java 21 or later, running on "
+                + Runtime.version(), cause);
+    }
+}
@@ -0,0 +1,63 @@
+package com.atlas.pharmacy.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskSchedulerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs blocking work on virtual threads instead of pooled platform threads, with
+ * {@code atlas.virtual-threads.enabled=true} on Java 21 or later (build with {@code -Pjava21}).
+ * <p>
+ * Tomcat handles every request on a new virtual thread, so a request blocked on JDBC or on the upstream
+ * drug catalogue holds no platform thread and concurrency is no longer capped by the pool size.
+ * The application task executor, which runs {@code @Async} methods and streamed MVC responses such as
+ * exports, and the scheduler, which runs the catalogue refresh, use virtual threads too. Pooled JDBC
+ * connections still bound how many of them reach the database at once.
+ * <p>
+ * A virtual thread blocking inside {@code synchronized} pins its carrier; run with
+ * {@code -Djdk.tracePinnedThreads=short} to log where that happens.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "atlas.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadsConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadsConfiguration.class);
+
+    public VirtualThreadsConfiguration() {
+        if (!VirtualThreads.isSupported()) {
+            throw new IllegalStateException("atlas.virtual-threads.enabled needs Java 21 or later, running on "
+                    + Runtime.version());
+        }
+        log.info("Running requests, async tasks and scheduled jobs on virtual threads");
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        return VirtualThreads.newThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    // Replaces the auto-configured pool under the names @Async and Spring MVC look up
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+
+    @Bean
+    public TaskSchedulerCustomizer virtualThreadsTaskSchedulerCustomizer() {
+        return scheduler -> scheduler.setThreadFactory(VirtualThreads.factory("scheduling-"));
+    }
+}
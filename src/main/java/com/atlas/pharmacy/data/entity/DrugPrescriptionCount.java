@@ -0,0 +1,25 @@
+package com.atlas.pharmacy.data.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of prescriptions per drug, maintained as prescriptions are saved and deleted.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DrugPrescriptionCount {
+
+    @Id
+    private Long drugId;
+    private long total;
+
+    public void add(long delta) {
+        total += delta;
+    }
+}
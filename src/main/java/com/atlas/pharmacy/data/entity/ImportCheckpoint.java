@@ -0,0 +1,33 @@
+package com.atlas.pharmacy.data.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of an import, saved in the same transaction as each batch of imported rows.
+ * Importing the same file again resumes after the last committed record; the checkpoint is deleted once
+ * the import completes, so a later import of the same contents starts over.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImportCheckpoint {
+
+    /**
+     * Import type and SHA-256 of the file contents; identifies a file across uploads, whatever its name.
+     */
+    @Id
+    private String name;
+    private long records;
+    private LocalDateTime updatedAt;
+
+    public ImportCheckpoint(String name) {
+        this.name = name;
+    }
+}
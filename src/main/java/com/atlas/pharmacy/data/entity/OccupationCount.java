@@ -0,0 +1,26 @@
+package com.atlas.pharmacy.data.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of patients per occupation, maintained as patients are saved and deleted.
+ * Patients without an occupation are counted under the empty string.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupationCount {
+
+    @Id
+    private String occupation;
+    private long total;
+
+    public void add(long delta) {
+        total += delta;
+    }
+}
@@ -1,7 +1,6 @@
 package com.atlas.pharmacy.data.entity;
 
 import jakarta.persistence.Entity;
-import jakarta.persistence.FetchType;
 import jakarta.persistence.OneToMany;
 import jakarta.validation.constraints.Email;
 import lombok.Getter;
@@ -12,6 +11,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Prescriptions are loaded lazily and never through the patient: the editor pages them with
+ * {@link com.atlas.pharmacy.data.service.PrescriptionService#listForPatient}, drug and prescriber included,
+ * and the dashboard reads the counters maintained by {@link com.atlas.pharmacy.data.service.StatisticsService}.
+ */
 @Entity
 @Getter
 @Setter
@@ -33,7 +37,7 @@ public class Patient extends AbstractEntity {
 
     private String allergy;
     private String healthCardId;
-    @OneToMany(fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "patient")
     private List<Prescription> prescriptions = new ArrayList<>();
 
     public Optional<String> getFullName() {
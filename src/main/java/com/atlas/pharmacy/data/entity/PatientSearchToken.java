@@ -0,0 +1,71 @@
+package com.atlas.pharmacy.data.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+
+/**
+ * One normalized search term of a patient: a name, email, health card ID or phone number fragment.
+ * The index on the token turns prefix searches into index range scans.
+ * <p>
+ * Tokens are only ever inserted or deleted. Being {@link Persistable} lets the repository persist a new
+ * token directly instead of merging it, which would select every token by its assigned key first.
+ */
+@Entity
+@Table(name = "patient_search_token", indexes = @Index(name = "patient_search_token_idx", columnList = "token"))
+@IdClass(PatientSearchToken.Key.class)
+@Getter
+@NoArgsConstructor
+public class PatientSearchToken implements Persistable<PatientSearchToken.Key> {
+
+    @Id
+    private Long patientId;
+    @Id
+    private String token;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private boolean persisted;
+
+    public PatientSearchToken(Long patientId, String token) {
+        this.patientId = patientId;
+        this.token = token;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(patientId, token);
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long patientId;
+        private String token;
+    }
+}
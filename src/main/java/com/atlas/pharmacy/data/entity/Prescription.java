@@ -1,8 +1,13 @@
 package com.atlas.pharmacy.data.entity;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -10,6 +15,11 @@ import java.time.LocalDate;
 import java.util.Optional;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "prescription_patient_idx", columnList = "patient_id, dispenseDate"),
+        @Index(name = "prescription_dispense_date_idx", columnList = "dispenseDate"),
+        @Index(name = "prescription_next_refill_idx", columnList = "nextRefillDate, id")
+})
 @Getter
 @Setter
 public class Prescription extends AbstractEntity {
@@ -22,6 +32,9 @@ public class Prescription extends AbstractEntity {
     private double quantity;
     private int refills;
     private int daySupplyDuration;
+    // Derived from the fields above on every insert and update, so due refills can be found with a range scan
+    @Setter(AccessLevel.NONE)
+    private LocalDate nextRefillDate;
     @ManyToOne
     @JoinColumn(name = "patient_id")
     private Patient patient;
@@ -67,6 +80,12 @@ public class Prescription extends AbstractEntity {
         }
     }
 
+    @PrePersist
+    @PreUpdate
+    private void updateNextRefillDate() {
+        nextRefillDate = getNextRefillDate().orElse(null);
+    }
+
     @Override
     public String toString() {
         return "Rx ID: ".concat(String.valueOf(getId()));
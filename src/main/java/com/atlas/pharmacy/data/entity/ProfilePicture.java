@@ -0,0 +1,47 @@
+package com.atlas.pharmacy.data.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A user's profile picture, kept apart from {@link User} so loading a user never reads image bytes.
+ * <p>
+ * Thumbnails are computed when the picture is stored, in the sizes avatars are served in. Reads go through
+ * projections of single columns; the entity itself is only loaded to write it.
+ */
+@Entity
+@Table(name = "profile_picture")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProfilePicture {
+
+    @Id
+    private Long userId;
+
+    // A null version marks a new row, so saving one persists it without selecting it first
+    @Version
+    private Integer version;
+
+    @Lob
+    @Column(length = 1000000)
+    private byte[] original;
+
+    @Column(length = 16384)
+    private byte[] thumbnailSmall;
+    @Column(length = 65536)
+    private byte[] thumbnailMedium;
+    @Column(length = 262144)
+    private byte[] thumbnailLarge;
+
+    public ProfilePicture(Long userId) {
+        this.userId = userId;
+    }
+}
@@ -0,0 +1,30 @@
+package com.atlas.pharmacy.data.export;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum ExportFormat {
+
+    CSV("csv", "text/csv"),
+    JSON("json", "application/json");
+
+    private final String extension;
+    private final String contentType;
+
+    ExportFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public static Optional<ExportFormat> fromExtension(String extension) {
+        return Arrays.stream(values()).filter(format -> format.extension.equalsIgnoreCase(extension)).findFirst();
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
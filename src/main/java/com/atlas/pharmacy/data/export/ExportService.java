@@ -0,0 +1,219 @@
+package com.atlas.pharmacy.data.export;
+
+import com.atlas.pharmacy.data.service.PatientExportRow;
+import com.atlas.pharmacy.data.service.PatientRepository;
+import com.atlas.pharmacy.data.service.PrescriptionExportRow;
+import com.atlas.pharmacy.data.service.PrescriptionRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Export of whole tables as CSV or JSON, written to a stream as the rows are read.
+ * <p>
+ * Rows are projections read from a forward-only cursor in a read-only transaction and written out in chunks,
+ * so memory use stays constant however many rows are exported. The CSV columns use the import column names,
+ * so an export can be imported into another store.
+ */
+@Service
+public class ExportService {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final List<Column<PatientExportRow>> PATIENT_COLUMNS = List.of(
+            new Column<>("id", PatientExportRow::id),
+            new Column<>("healthCardId", PatientExportRow::healthCardId),
+            new Column<>("firstName", PatientExportRow::firstName),
+            new Column<>("lastName", PatientExportRow::lastName),
+            new Column<>("email", PatientExportRow::email),
+            new Column<>("phone", PatientExportRow::phone),
+            new Column<>("dateOfBirth", PatientExportRow::dateOfBirth),
+            new Column<>("occupation", PatientExportRow::occupation),
+            new Column<>("streetAddress", PatientExportRow::streetAddress),
+            new Column<>("city", PatientExportRow::city),
+            new Column<>("province", PatientExportRow::province),
+            new Column<>("postalCode", PatientExportRow::postalCode),
+            new Column<>("allergy", PatientExportRow::allergy));
+
+    private static final List<Column<PrescriptionExportRow>> PRESCRIPTION_COLUMNS = List.of(
+            new Column<>("id", PrescriptionExportRow::id),
+            new Column<>("healthCardId", PrescriptionExportRow::healthCardId),
+            new Column<>("licenseIdentificationNumber", PrescriptionExportRow::licenseIdentificationNumber),
+            new Column<>("drugCode", PrescriptionExportRow::drugCode),
+            new Column<>("ingredientName", PrescriptionExportRow::ingredientName),
+            new Column<>("dispenseDate", PrescriptionExportRow::dispenseDate),
+            new Column<>("frequency", PrescriptionExportRow::frequency),
+            new Column<>("quantity", PrescriptionExportRow::quantity),
+            new Column<>("refills", PrescriptionExportRow::refills),
+            new Column<>("daySupplyDuration", PrescriptionExportRow::daySupplyDuration),
+            new Column<>("nextRefillDate", PrescriptionExportRow::nextRefillDate));
+
+    private final PatientRepository patientRepository;
+    private final PrescriptionRepository prescriptionRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ExportService(PatientRepository patientRepository, PrescriptionRepository prescriptionRepository,
+                         PlatformTransactionManager transactionManager) {
+        this.patientRepository = patientRepository;
+        this.prescriptionRepository = prescriptionRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Write all patients, ordered by ID.
+     *
+     * @param out Destination; flushed after every chunk and left open.
+     */
+    public void exportPatients(ExportFormat format, OutputStream out) throws IOException {
+        export(patientRepository::streamExportRows, PATIENT_COLUMNS, format, out);
+    }
+
+    /**
+     * Write all prescriptions with the natural keys of their patient, prescriber and drug, ordered by ID.
+     *
+     * @param out Destination; flushed after every chunk and left open.
+     */
+    public void exportPrescriptions(ExportFormat format, OutputStream out) throws IOException {
+        export(prescriptionRepository::streamExportRows, PRESCRIPTION_COLUMNS, format, out);
+    }
+
+    private <T> void export(Supplier<Stream<T>> rows, List<Column<T>> columns, ExportFormat format, OutputStream out)
+            throws IOException {
+        try (RowWriter writer = format == ExportFormat.CSV ? new CsvRowWriter(out) : new JsonRowWriter(out)) {
+            writer.start(columns.stream().map(Column::name).toList());
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<T> stream = rows.get()) {
+                    int inChunk = 0;
+                    for (T row : (Iterable<T>) stream::iterator) {
+                        List<Object> values = new ArrayList<>(columns.size());
+                        for (Column<T> column : columns) {
+                            values.add(column.value().apply(row));
+                        }
+                        writer.write(values);
+                        if (++inChunk == CHUNK_SIZE) {
+                            writer.flush();
+                            inChunk = 0;
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private record Column<T>(String name, Function<T, Object> value) {
+    }
+
+    private interface RowWriter extends AutoCloseable {
+
+        void start(List<String> names) throws IOException;
+
+        void write(List<Object> values) throws IOException;
+
+        void flush() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+
+        private final BufferedWriter writer;
+        private final CsvWriter csv;
+
+        CsvRowWriter(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.csv = new CsvWriter(writer);
+        }
+
+        @Override
+        public void start(List<String> names) throws IOException {
+            csv.write(names);
+        }
+
+        @Override
+        public void write(List<Object> values) throws IOException {
+            csv.write(values);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The stream belongs to the caller
+            writer.flush();
+        }
+    }
+
+    private static class JsonRowWriter implements RowWriter {
+
+        private final JsonGenerator json;
+        private List<String> names;
+
+        JsonRowWriter(OutputStream out) throws IOException {
+            this.json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void start(List<String> names) throws IOException {
+            this.names = names;
+            json.writeStartArray();
+        }
+
+        @Override
+        public void write(List<Object> values) throws IOException {
+            json.writeStartObject();
+            for (int i = 0; i < values.size(); i++) {
+                json.writeFieldName(names.get(i));
+                Object value = values.get(i);
+                if (value == null) {
+                    json.writeNull();
+                } else if (value instanceof Integer number) {
+                    json.writeNumber(number);
+                } else if (value instanceof Long number) {
+                    json.writeNumber(number);
+                } else if (value instanceof Double number) {
+                    json.writeNumber(number);
+                } else {
+                    json.writeString(value.toString());
+                }
+            }
+            json.writeEndObject();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            json.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            json.writeEndArray();
+            json.close();
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.atlas.pharmacy.data.generator;
+
+import com.atlas.pharmacy.data.service.PatientSearchService;
+import com.atlas.pharmacy.data.service.ReferenceDataCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills the database with synthetic prescribers, drugs, patients and prescriptions for load testing.
+ * <p>
+ * Enabled with {@code atlas.generator.enabled=true}. The same seed always produces the same rows, so
+ * measurements can be repeated against the same data. Rows are written with batched JDBC statements
+ * instead of entity saves, and the patient search tokens are written alongside the patients; the
+ * statistics counters are rebuilt when the application is ready, after this runner.
+ * <p>
+ * Names, drugs and prescribers follow skewed distributions so searches and counts see realistic
+ * selectivity: a few common surnames and drugs account for most rows, and most prescriptions are recent.
+ */
+@Component
+@ConditionalOnProperty(name = "atlas.generator.enabled", havingValue = "true")
+public class DataGenerator implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DataGenerator.class);
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private static final Weighted<String> FIRST_NAMES = Weighted.zipf("James", "Mary", "Robert", "Patricia", "John",
+            "Jennifer", "Michael", "Linda", "David", "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph",
+            "Jessica", "Thomas", "Sarah", "Charles", "Karen", "Mohammed", "Olivia", "Wei", "Priya", "Liam", "Emma",
+            "Noah", "Amelia", "Lucas", "Chloe", "Ethan", "Zoe", "Raj", "Mei", "Pierre", "Sophie");
+    private static final Weighted<String> LAST_NAMES = Weighted.zipf("Smith", "Brown", "Tremblay", "Martin", "Roy",
+            "Wilson", "MacDonald", "Gagnon", "Johnson", "Taylor", "Cote", "Campbell", "Anderson", "Leblanc", "Lee",
+            "Jones", "White", "Williams", "Miller", "Thompson", "Gauthier", "Young", "Van", "Morin", "Bouchard",
+            "Scott", "Stewart", "Patel", "Singh", "Nguyen", "Chen", "Wong", "Li", "Martinez", "Garcia", "Davis");
+    private static final Weighted<String> DOMAINS = Weighted.zipf("gmail.com", "hotmail.com", "outlook.com",
+            "yahoo.ca", "rogers.com", "bell.net", "sympatico.ca");
+    private static final Weighted<String> AREA_CODES = Weighted.zipf("416", "647", "905", "613", "519", "705", "289",
+            "437", "807", "343");
+    private static final Weighted<String> CITIES = Weighted.zipf("Toronto", "Ottawa", "Mississauga", "Brampton",
+            "Hamilton", "London", "Markham", "Vaughan", "Kitchener", "Windsor", "Newmarket", "Sudbury", "Kingston");
+    private static final Weighted<String> STREETS = Weighted.zipf("King St", "Queen St", "Yonge St", "Main St",
+            "Dundas St", "Bloor St", "Wellington St", "Church St", "Victoria Ave", "Park Rd", "Lakeshore Blvd");
+    private static final Weighted<String> OCCUPATIONS = Weighted.of(new String[]{"Insurance Clerk", "Mortarman",
+            "Beer Coil Cleaner", "Scale Attendant", null}, 30, 15, 10, 25, 20);
+    private static final Weighted<String> ROLES = Weighted.of(new String[]{"Worker", "Supervisor", "Manager",
+            "External"}, 60, 20, 10, 10);
+    private static final Weighted<String> ALLERGIES = Weighted.of(new String[]{"", "Peanut", "Penicillin",
+            "Sulfa", "Latex", "Shellfish"}, 80, 6, 6, 3, 3, 2);
+    private static final Weighted<String> PRACTICES = Weighted.of(new String[]{"General Practitioner",
+            "Nurse Practitioner", "Cardiologist", "Dermatologist", "Psychiatrist", "Dentist"}, 60, 15, 8, 7, 6, 4);
+    private static final String[] INGREDIENTS = {"ATORVASTATIN", "LEVOTHYROXINE", "METFORMIN", "AMLODIPINE",
+            "RAMIPRIL", "SALBUTAMOL", "ROSUVASTATIN", "PANTOPRAZOLE", "HYDROCHLOROTHIAZIDE", "ACETAMINOPHEN",
+            "AMOXICILLIN", "IBUPROFEN", "SERTRALINE", "ESCITALOPRAM", "APIXABAN", "INSULIN GLARGINE", "PREDNISONE",
+            "GABAPENTIN", "BISOPROLOL", "CLAVULANIC ACID", "CEPHALEXIN", "CITALOPRAM", "TRAZODONE", "QUETIAPINE",
+            "FUROSEMIDE", "LOSARTAN", "OMEPRAZOLE", "METOPROLOL", "WARFARIN", "ZOPICLONE"};
+    private static final String[] STRENGTHS = {"5", "10", "20", "25", "40", "50", "100", "250", "500"};
+    private static final Weighted<Integer> DAY_SUPPLIES = Weighted.of(new Integer[]{30, 90, 7, 60}, 55, 30, 10, 5);
+
+    private final JdbcTemplate jdbc;
+    private final ReferenceDataCache referenceDataCache;
+    private final int patients;
+    private final int prescribers;
+    private final int drugs;
+    private final double prescriptionsPerPatient;
+    private final long seed;
+    private final int batchSize;
+
+    public DataGenerator(JdbcTemplate jdbc, ReferenceDataCache referenceDataCache,
+                         @Value("${atlas.generator.patients:100000}") int patients,
+                         @Value("${atlas.generator.prescribers:0}") int prescribers,
+                         @Value("${atlas.generator.drugs:500}") int drugs,
+                         @Value("${atlas.generator.prescriptions-per-patient:3}") double prescriptionsPerPatient,
+                         @Value("${atlas.generator.seed:42}") long seed,
+                         @Value("${atlas.generator.batch-size:5000}") int batchSize) {
+        this.jdbc = jdbc;
+        this.referenceDataCache = referenceDataCache;
+        this.patients = patients;
+        // About one prescriber for every 200 patients unless configured
+        this.prescribers = prescribers > 0 ? prescribers : Math.max(10, patients / 200);
+        this.drugs = drugs;
+        this.prescriptionsPerPatient = prescriptionsPerPatient;
+        this.seed = seed;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Integer existing = jdbc.queryForObject("select count(*) from patient", Integer.class);
+        if (existing != null && existing >= patients) {
+            log.info("Data generator skipped, {} patients already present", existing);
+            return;
+        }
+
+        long start = System.nanoTime();
+        long firstId = nextFreeId();
+        Random random = new Random(seed);
+
+        long prescriberIds = firstId;
+        insertPrescribers(random, prescriberIds);
+        long drugIds = prescriberIds + prescribers;
+        insertDrugs(random, drugIds);
+        long patientIds = drugIds + drugs;
+        insertPatients(random, patientIds);
+        long prescriptionIds = patientIds + patients;
+        int prescriptions = insertPrescriptions(random, prescriptionIds, patientIds, drugIds, prescriberIds);
+
+        restartSequence(prescriptionIds + prescriptions);
+        // The rows went in around Hibernate, so nothing it cached before them can be trusted
+        referenceDataCache.evictAll();
+        log.info("Generated {} patients, {} prescriptions, {} prescribers and {} drugs in {} ms", patients,
+                prescriptions, prescribers, drugs, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void insertPrescribers(Random random, long firstId) {
+        insert("insert into prescriber (version, id, license_identification_number, practice, first_name, last_name, " +
+                "office_address, postal_code) values (0, ?, ?, ?, ?, ?, ?, ?)", prescribers, (statement, i) -> {
+            statement.setLong(1, firstId + i);
+            statement.setLong(2, 10000 + i);
+            statement.setString(3, PRACTICES.next(random));
+            statement.setString(4, FIRST_NAMES.next(random));
+            statement.setString(5, LAST_NAMES.next(random));
+            statement.setString(6, (1 + random.nextInt(999)) + " " + STREETS.next(random));
+            statement.setString(7, postalCode(random));
+        });
+    }
+
+    private void insertDrugs(Random random, long firstId) {
+        insert("insert into drug (version, id, dosage_unit, dosage_value, drug_code, ingredient_name, strength, " +
+                "strength_unit) values (0, ?, '', '', ?, ?, ?, 'MG')", drugs, (statement, i) -> {
+            statement.setLong(1, firstId + i);
+            statement.setInt(2, 2_000_000 + i);
+            statement.setString(3, INGREDIENTS[i % INGREDIENTS.length]);
+            statement.setString(4, STRENGTHS[(i / INGREDIENTS.length) % STRENGTHS.length]);
+        });
+    }
+
+    private void insertPatients(Random random, long firstId) {
+        List<Object[]> tokens = new ArrayList<>();
+        insert("insert into patient (version, id, first_name, last_name, email, phone, date_of_birth, occupation, role, " +
+                "street_address, province, city, postal_code, allergy, health_card_id) " +
+                "values (0, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'Ontario', ?, ?, ?, ?)", patients, (statement, i) -> {
+            long id = firstId + i;
+            String firstName = FIRST_NAMES.next(random);
+            String lastName = LAST_NAMES.next(random);
+            String email = (firstName + "." + lastName + (i % 1000)).toLowerCase() + "@" + DOMAINS.next(random);
+            String phone = String.format("(%s) %03d-%04d", AREA_CODES.next(random), 200 + random.nextInt(800),
+                    random.nextInt(10000));
+            // Ten digits unique per patient, scrambled so consecutive patients do not share prefixes
+            String healthCardId = String.format("%010d%c%c", (i * 2_654_435_761L) % 10_000_000_000L,
+                    (char) ('A' + random.nextInt(26)), (char) ('A' + random.nextInt(26)));
+            // Ages cluster around middle age, between newborn and 100
+            int age = (int) Math.max(0, Math.min(100, Math.round(45 + random.nextGaussian() * 18)));
+
+            statement.setLong(1, id);
+            statement.setString(2, firstName);
+            statement.setString(3, lastName);
+            statement.setString(4, email);
+            statement.setString(5, phone);
+            statement.setDate(6, Date.valueOf(TODAY.minusYears(age).minusDays(random.nextInt(365))));
+            statement.setString(7, OCCUPATIONS.next(random));
+            statement.setString(8, ROLES.next(random));
+            statement.setString(9, (1 + random.nextInt(999)) + " " + STREETS.next(random));
+            statement.setString(10, CITIES.next(random));
+            statement.setString(11, postalCode(random));
+            statement.setString(12, ALLERGIES.next(random));
+            statement.setString(13, healthCardId);
+
+            for (String token : PatientSearchService.tokens(firstName, lastName, email, healthCardId, phone)) {
+                tokens.add(new Object[]{id, token});
+            }
+        }, () -> {
+            jdbc.batchUpdate("insert into patient_search_token (patient_id, token) values (?, ?)", tokens);
+            tokens.clear();
+        });
+    }
+
+    private int insertPrescriptions(Random random, long firstId, long patientIds, long drugIds, long prescriberIds) {
+        Weighted<Integer> drugPopularity = Weighted.zipf(drugs);
+        Weighted<Integer> prescriberPopularity = Weighted.zipf(prescribers);
+        // Geometric number of prescriptions per patient: most have a few, some have many
+        double more = prescriptionsPerPatient / (1 + prescriptionsPerPatient);
+
+        List<long[]> rows = new ArrayList<>();
+        for (int patient = 0; patient < patients; patient++) {
+            while (random.nextDouble() < more) {
+                rows.add(new long[]{patientIds + patient});
+            }
+        }
+        insert("insert into prescription (version, id, dispense_date, frequency, quantity, refills, day_supply_duration, " +
+                "next_refill_date, patient_id, drug_id, prescriber_id) values (0, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                rows.size(), (statement, i) -> {
+            // Squaring skews dispense dates towards the last few weeks of the two years covered
+            double age = random.nextDouble();
+            LocalDate dispensed = TODAY.minusDays((long) (age * age * 730));
+            int daySupply = DAY_SUPPLIES.next(random);
+            int perDay = 1 + random.nextInt(2);
+            int refills = random.nextInt(6);
+
+            statement.setLong(1, firstId + i);
+            statement.setDate(2, Date.valueOf(dispensed));
+            statement.setString(3, "take " + perDay + " tablet by mouth " + (perDay == 1 ? "once" : "twice") + " daily");
+            statement.setDouble(4, daySupply * perDay);
+            statement.setInt(5, refills);
+            statement.setInt(6, daySupply);
+            // Same rule as Prescription.getNextRefillDate, which entity saves persist
+            if (refills > 0) {
+                statement.setDate(7, Date.valueOf(dispensed.plusDays(daySupply)));
+            } else {
+                statement.setNull(7, Types.DATE);
+            }
+            statement.setLong(8, rows.get(i)[0]);
+            statement.setLong(9, drugIds + drugPopularity.next(random));
+            statement.setLong(10, prescriberIds + prescriberPopularity.next(random));
+        });
+        return rows.size();
+    }
+
+    private long nextFreeId() {
+        long maxId = 0;
+        for (String table : new String[]{"patient", "prescriber", "drug", "prescription", "application_user"}) {
+            Long tableMax = jdbc.queryForObject("select max(id) from " + table, Long.class);
+            maxId = Math.max(maxId, tableMax == null ? 0 : tableMax);
+        }
+        // IDs Hibernate may already have reserved from the sequence are below its next value
+        Long sequence = jdbc.queryForObject("select next value for idgenerator", Long.class);
+        return Math.max(maxId, sequence == null ? 0 : sequence) + 1;
+    }
+
+    private void restartSequence(long nextId) {
+        // With the pooled-lo optimizer the first block Hibernate takes after the restart starts at the value it reads
+        jdbc.execute("alter sequence idgenerator restart with " + nextId);
+    }
+
+    private void insert(String sql, int rows, RowWriter writer) {
+        insert(sql, rows, writer, () -> {
+        });
+    }
+
+    private void insert(String sql, int rows, RowWriter writer, Runnable afterBatch) {
+        for (int from = 0; from < rows; from += batchSize) {
+            int offset = from;
+            int size = Math.min(batchSize, rows - from);
+            jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    writer.write(statement, offset + i);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+            afterBatch.run();
+        }
+    }
+
+    private static String postalCode(Random random) {
+        return "" + (char) ('K' + random.nextInt(4)) + random.nextInt(10) + (char) ('A' + random.nextInt(26)) + " "
+                + random.nextInt(10) + (char) ('A' + random.nextInt(26)) + random.nextInt(10);
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(PreparedStatement statement, int row) throws SQLException;
+    }
+}
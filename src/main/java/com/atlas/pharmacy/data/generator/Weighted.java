@@ -0,0 +1,60 @@
+package com.atlas.pharmacy.data.generator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Picks values with fixed relative weights in logarithmic time.
+ */
+final class Weighted<T> {
+
+    private final T[] values;
+    private final double[] cumulative;
+
+    private Weighted(T[] values, double[] weights) {
+        this.values = values;
+        this.cumulative = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < cumulative.length; i++) {
+            cumulative[i] /= total;
+        }
+    }
+
+    static <T> Weighted<T> of(T[] values, double... weights) {
+        if (values.length != weights.length) {
+            throw new IllegalArgumentException("Expected one weight per value");
+        }
+        return new Weighted<>(values, weights);
+    }
+
+    /**
+     * Values in order of decreasing frequency, the n-th value being picked 1/n as often as the first.
+     */
+    @SafeVarargs
+    static <T> Weighted<T> zipf(T... values) {
+        double[] weights = new double[values.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = 1.0 / (i + 1);
+        }
+        return new Weighted<>(values, weights);
+    }
+
+    /**
+     * Indexes 0 to size - 1 with Zipf weights.
+     */
+    static Weighted<Integer> zipf(int size) {
+        Integer[] indexes = new Integer[size];
+        Arrays.setAll(indexes, i -> i);
+        return zipf(indexes);
+    }
+
+    T next(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        // Not found gives -(insertion point) - 1; the insertion point is the bucket the draw falls in
+        return values[Math.min(index < 0 ? -index - 1 : index, values.length - 1)];
+    }
+}
@@ -0,0 +1,108 @@
+package com.atlas.pharmacy.data.importer;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One data record of an import file, with its fields looked up by header column name.
+ * <p>
+ * Column names are matched ignoring case, spaces and underscores, so {@code drug_code} and {@code Drug Code}
+ * both name the {@code drugCode} column. Conversion errors are reported as {@link IllegalArgumentException}
+ * with a message naming the column.
+ */
+public class CsvRecord {
+
+    private final long number;
+    private final Map<String, Integer> columns;
+    private final List<String> values;
+
+    CsvRecord(long number, Map<String, Integer> columns, List<String> values) {
+        this.number = number;
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * Map normalized column names to their positions in a header record.
+     */
+    static Map<String, Integer> columns(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(normalize(header.get(i)), i);
+        }
+        return columns;
+    }
+
+    /**
+     * Get the record number, counting data records from 1.
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    /**
+     * Get a field, trimmed.
+     *
+     * @return The value, or null if the column is missing or the field is blank.
+     */
+    public String get(String column) {
+        Integer index = columns.get(normalize(column));
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    public String require(String column) {
+        String value = get(column);
+        if (value == null) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        return value;
+    }
+
+    public LocalDate getDate(String column) {
+        String value = get(column);
+        try {
+            return value == null ? null : LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(column + " is not a date (yyyy-mm-dd): " + value);
+        }
+    }
+
+    public int getInt(String column, int defaultValue) {
+        String value = get(column);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a whole number: " + value);
+        }
+    }
+
+    public long requireLong(String column) {
+        String value = require(column);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a whole number: " + value);
+        }
+    }
+
+    public double getDouble(String column, double defaultValue) {
+        String value = get(column);
+        try {
+            return value == null ? defaultValue : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a number: " + value);
+        }
+    }
+
+    private static String normalize(String column) {
+        return column.replace("_", "").replace(" ", "").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,18 @@
+package com.atlas.pharmacy.data.importer;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of an import.
+ *
+ * @param records  Data records in the file.
+ * @param imported Records stored by this run.
+ * @param skipped  Records already imported by an earlier run or already present in the database.
+ * @param rejected Records that failed validation or refer to unknown rows.
+ * @param errors   Messages for the first rejected records.
+ * @param elapsed  Duration of the run.
+ */
+public record ImportResult(long records, long imported, long skipped, long rejected, List<String> errors,
+                           Duration elapsed) {
+}
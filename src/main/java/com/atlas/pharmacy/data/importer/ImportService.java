@@ -0,0 +1,268 @@
+package com.atlas.pharmacy.data.importer;
+
+import com.atlas.pharmacy.data.entity.ImportCheckpoint;
+import com.atlas.pharmacy.data.service.DrugRepository;
+import com.atlas.pharmacy.data.service.DrugService;
+import com.atlas.pharmacy.data.service.ImportCheckpointRepository;
+import com.atlas.pharmacy.data.service.PatientRepository;
+import com.atlas.pharmacy.data.service.PatientService;
+import com.atlas.pharmacy.data.service.PrescriberRepository;
+import com.atlas.pharmacy.data.service.PrescriberService;
+import com.atlas.pharmacy.data.service.PrescriptionService;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongConsumer;
+
+/**
+ * Bulk import of patients, prescribers and prescriptions from delimited files.
+ * <p>
+ * The file is streamed in batches: the records of a batch are converted and validated in parallel, then the
+ * valid ones are written in one transaction together with a checkpoint. Memory use is bounded by the batch
+ * size and the reference lookup maps, not by the file size. If an import fails, importing a file with the
+ * same contents again resumes after the last committed batch. Imports run one at a time on a dedicated thread.
+ */
+@Service
+public class ImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportService.class);
+    private static final int MAX_ERRORS = 100;
+
+    private final PatientService patientService;
+    private final PrescriberService prescriberService;
+    private final PrescriptionService prescriptionService;
+    private final DrugService drugService;
+    private final PatientRepository patientRepository;
+    private final PrescriberRepository prescriberRepository;
+    private final DrugRepository drugRepository;
+    private final ImportCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final int batchSize;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "import"));
+
+    public ImportService(PatientService patientService, PrescriberService prescriberService,
+                         PrescriptionService prescriptionService, DrugService drugService,
+                         PatientRepository patientRepository, PrescriberRepository prescriberRepository,
+                         DrugRepository drugRepository, ImportCheckpointRepository checkpointRepository,
+                         TransactionTemplate transactionTemplate, Validator validator,
+                         @Value("${atlas.import.batch-size:1000}") int batchSize) {
+        this.patientService = patientService;
+        this.prescriberService = prescriberService;
+        this.prescriptionService = prescriptionService;
+        this.drugService = drugService;
+        this.patientRepository = patientRepository;
+        this.prescriberRepository = prescriberRepository;
+        this.drugRepository = drugRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Queue an import to run after the imports already queued.
+     *
+     * @see #importFile(ImportType, String, String, Path, char, LongConsumer)
+     */
+    public CompletableFuture<ImportResult> submit(ImportType type, String name, String contentHash, Path file,
+                                                  char delimiter, LongConsumer progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return importFile(type, name, contentHash, file, delimiter, progress);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Import a UTF-8 file whose first record is a header naming the {@linkplain ImportType#getColumns() columns}.
+     *
+     * @param name        Original file name, for the log.
+     * @param contentHash Hash of the file contents; with the type it identifies the checkpoint to resume from.
+     * @param delimiter   Field separator.
+     * @param progress    Receives the number of records processed after every batch.
+     * @throws IOException If the file cannot be read or is malformed; batches committed before remain imported.
+     */
+    public ImportResult importFile(ImportType type, String name, String contentHash, Path file, char delimiter,
+                                   LongConsumer progress) throws IOException {
+        long started = System.nanoTime();
+        String checkpointName = type + ":" + contentHash;
+        ImportCheckpoint checkpoint = checkpointRepository.findById(checkpointName)
+                .orElseGet(() -> new ImportCheckpoint(checkpointName));
+        long resumeAfter = checkpoint.getRecords();
+        if (resumeAfter > 0) {
+            log.info("Resuming import of {} after record {}", name, resumeAfter);
+        }
+
+        Tally tally = new Tally();
+        try (CsvReader reader = new CsvReader(openSkippingByteOrderMark(file), delimiter)) {
+            List<String> header = reader.next();
+            if (header != null) {
+                Map<String, Integer> columns = CsvRecord.columns(header);
+                RecordImporter<?> importer = createImporter(type);
+                List<CsvRecord> batch = new ArrayList<>(batchSize);
+                List<String> fields;
+                while ((fields = reader.next()) != null) {
+                    if (fields.size() == 1 && fields.get(0).isBlank()) {
+                        continue;
+                    }
+                    tally.records++;
+                    if (tally.records <= resumeAfter) {
+                        tally.skipped++;
+                        continue;
+                    }
+                    batch.add(new CsvRecord(tally.records, columns, fields));
+                    if (batch.size() == batchSize) {
+                        importBatch(importer, batch, checkpoint, tally);
+                        batch.clear();
+                        progress.accept(tally.records);
+                    }
+                }
+                importBatch(importer, batch, checkpoint, tally);
+            }
+        }
+        // Only an interrupted import resumes; the same contents uploaded later are imported again
+        if (checkpointRepository.existsById(checkpointName)) {
+            checkpointRepository.deleteById(checkpointName);
+        }
+        progress.accept(tally.records);
+
+        ImportResult result = new ImportResult(tally.records, tally.imported, tally.skipped, tally.rejected,
+                List.copyOf(tally.errors), Duration.ofNanos(System.nanoTime() - started));
+        log.info("Imported {} ({}): {} records, {} imported, {} skipped, {} rejected in {} ms", name, type,
+                result.records(), result.imported(), result.skipped(), result.rejected(), result.elapsed().toMillis());
+        return result;
+    }
+
+    /**
+     * Open a UTF-8 file, skipping the byte order mark that spreadsheet exports put in front of the header:
+     * the decoder keeps it, and it would become part of the first column name.
+     */
+    private static BufferedReader openSkippingByteOrderMark(Path file) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        return reader;
+    }
+
+    private <T> void importBatch(RecordImporter<T> importer, List<CsvRecord> batch, ImportCheckpoint checkpoint,
+                                 Tally tally) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Converted<T>> converted = batch.parallelStream()
+                .map(record -> {
+                    try {
+                        return new Converted<>(record, importer.convert(record), null);
+                    } catch (IllegalArgumentException e) {
+                        return new Converted<T>(record, null, e.getMessage());
+                    }
+                })
+                .toList();
+
+        List<T> valid = new ArrayList<>(converted.size());
+        for (Converted<T> record : converted) {
+            if (record.error() == null) {
+                valid.add(record.value());
+            } else {
+                tally.reject(record.record().getNumber(), record.error());
+            }
+        }
+
+        long lastRecord = batch.get(batch.size() - 1).getNumber();
+        Integer written = transactionTemplate.execute(status -> {
+            int count = valid.isEmpty() ? 0 : importer.write(valid);
+            checkpoint.setRecords(lastRecord);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+            return count;
+        });
+        importer.committed();
+        tally.imported += written;
+        tally.skipped += valid.size() - written;
+    }
+
+    private RecordImporter<?> createImporter(ImportType type) {
+        return switch (type) {
+            case PATIENTS -> new PatientImporter(patientService, validator, loadPatientIds());
+            case PRESCRIBERS -> new PrescriberImporter(prescriberService, loadPrescriberIds());
+            case PRESCRIPTIONS -> {
+                Map<String, Long> drugIds = new HashMap<>();
+                Map<Integer, Long> drugIdsByCode = new HashMap<>();
+                for (Object[] row : drugRepository.findIdsByCodeAndIngredient()) {
+                    int drugCode = (Integer) row[0];
+                    Long id = (Long) row[2];
+                    if (row[1] != null) {
+                        drugIds.put(PrescriptionImporter.drugKey(drugCode, (String) row[1]), id);
+                    }
+                    drugIdsByCode.merge(drugCode, id, (stored, added) -> PrescriptionImporter.AMBIGUOUS);
+                }
+                yield new PrescriptionImporter(prescriptionService, drugService, patientRepository,
+                        prescriberRepository, drugRepository, loadPatientIds(), loadPrescriberIds(), drugIds,
+                        drugIdsByCode);
+            }
+        };
+    }
+
+    private Map<String, Long> loadPatientIds() {
+        Map<String, Long> patientIds = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> patientRepository.streamIdsByHealthCardId()
+                .forEach(row -> patientIds.put((String) row[0], (Long) row[1])));
+        return patientIds;
+    }
+
+    private Map<Long, Long> loadPrescriberIds() {
+        Map<Long, Long> prescriberIds = new HashMap<>();
+        for (Object[] row : prescriberRepository.findIdsByLicenseNumber()) {
+            prescriberIds.put((Long) row[0], (Long) row[1]);
+        }
+        return prescriberIds;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private record Converted<T>(CsvRecord record, T value, String error) {
+    }
+
+    private static class Tally {
+        long records;
+        long imported;
+        long skipped;
+        long rejected;
+        final List<String> errors = new ArrayList<>();
+
+        void reject(long record, String error) {
+            rejected++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add("Record " + record + ": " + error);
+            }
+        }
+    }
+}
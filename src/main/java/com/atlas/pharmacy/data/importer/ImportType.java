@@ -0,0 +1,30 @@
+package com.atlas.pharmacy.data.importer;
+
+/**
+ * Kinds of import file, with the columns each one reads. Prescriptions refer to patients, prescribers and
+ * drugs by their natural keys, so patients and prescribers are imported first.
+ */
+public enum ImportType {
+
+    PATIENTS("Patients", "healthCardId, firstName, lastName, email, phone, dateOfBirth, occupation, "
+            + "streetAddress, city, province, postalCode, allergy"),
+    PRESCRIBERS("Prescribers", "licenseIdentificationNumber, firstName, lastName, practice, officeAddress, postalCode"),
+    PRESCRIPTIONS("Prescriptions", "healthCardId, licenseIdentificationNumber, drugCode, ingredientName, "
+            + "dispenseDate, frequency, quantity, refills, daySupplyDuration");
+
+    private final String label;
+    private final String columns;
+
+    ImportType(String label, String columns) {
+        this.label = label;
+        this.columns = columns;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getColumns() {
+        return columns;
+    }
+}
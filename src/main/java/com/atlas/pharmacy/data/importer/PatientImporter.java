@@ -0,0 +1,82 @@
+package com.atlas.pharmacy.data.importer;
+
+import com.atlas.pharmacy.data.entity.Patient;
+import com.atlas.pharmacy.data.service.PatientService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports patients identified by their health card ID; patients whose health card is already known are skipped.
+ */
+class PatientImporter implements RecordImporter<Patient> {
+
+    private final PatientService patientService;
+    private final Validator validator;
+    private final Map<String, Long> patientIds;
+    private final Map<String, Long> written = new HashMap<>();
+
+    /**
+     * @param patientIds IDs of the stored patients by health card ID; patients imported are added once committed.
+     */
+    PatientImporter(PatientService patientService, Validator validator, Map<String, Long> patientIds) {
+        this.patientService = patientService;
+        this.validator = validator;
+        this.patientIds = patientIds;
+    }
+
+    @Override
+    public Patient convert(CsvRecord record) {
+        Patient patient = new Patient();
+        patient.setHealthCardId(record.require("healthCardId"));
+        patient.setFirstName(record.require("firstName"));
+        patient.setLastName(record.require("lastName"));
+        patient.setEmail(record.get("email"));
+        patient.setPhone(record.get("phone"));
+        patient.setDateOfBirth(record.getDate("dateOfBirth"));
+        patient.setOccupation(record.get("occupation"));
+        patient.setStreetAddress(record.get("streetAddress"));
+        patient.setCity(record.get("city"));
+        patient.setProvince(record.get("province"));
+        patient.setPostalCode(record.get("postalCode"));
+        patient.setAllergy(record.get("allergy"));
+
+        Set<ConstraintViolation<Patient>> violations = validator.validate(patient);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .collect(Collectors.joining(", ")));
+        }
+        return patient;
+    }
+
+    @Override
+    public int write(List<Patient> batch) {
+        List<Patient> patients = new ArrayList<>(batch.size());
+        Set<String> healthCards = new HashSet<>();
+        for (Patient patient : batch) {
+            // A health card listed twice in the file is only imported the first time
+            if (!patientIds.containsKey(patient.getHealthCardId()) && healthCards.add(patient.getHealthCardId())) {
+                patients.add(patient);
+            }
+        }
+        written.clear();
+        for (Patient saved : patientService.saveAll(patients)) {
+            written.put(saved.getHealthCardId(), saved.getId());
+        }
+        return patients.size();
+    }
+
+    @Override
+    public void committed() {
+        patientIds.putAll(written);
+        written.clear();
+    }
+}
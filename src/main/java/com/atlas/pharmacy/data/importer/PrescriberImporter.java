@@ -0,0 +1,65 @@
+package com.atlas.pharmacy.data.importer;
+
+import com.atlas.pharmacy.data.entity.Prescriber;
+import com.atlas.pharmacy.data.service.PrescriberService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports prescribers identified by their license number; known license numbers are skipped.
+ */
+class PrescriberImporter implements RecordImporter<Prescriber> {
+
+    private final PrescriberService prescriberService;
+    private final Map<Long, Long> prescriberIds;
+    private final Map<Long, Long> written = new HashMap<>();
+
+    /**
+     * @param prescriberIds IDs of the stored prescribers by license number; prescribers imported are added
+     *                      once committed.
+     */
+    PrescriberImporter(PrescriberService prescriberService, Map<Long, Long> prescriberIds) {
+        this.prescriberService = prescriberService;
+        this.prescriberIds = prescriberIds;
+    }
+
+    @Override
+    public Prescriber convert(CsvRecord record) {
+        Prescriber prescriber = new Prescriber();
+        prescriber.setLicenseIdentificationNumber(record.requireLong("licenseIdentificationNumber"));
+        prescriber.setFirstName(record.require("firstName"));
+        prescriber.setLastName(record.require("lastName"));
+        prescriber.setPractice(record.get("practice"));
+        prescriber.setOfficeAddress(record.get("officeAddress"));
+        prescriber.setPostalCode(record.get("postalCode"));
+        return prescriber;
+    }
+
+    @Override
+    public int write(List<Prescriber> batch) {
+        List<Prescriber> prescribers = new ArrayList<>(batch.size());
+        Set<Long> licenses = new HashSet<>();
+        for (Prescriber prescriber : batch) {
+            long license = prescriber.getLicenseIdentificationNumber();
+            if (!prescriberIds.containsKey(license) && licenses.add(license)) {
+                prescribers.add(prescriber);
+            }
+        }
+        written.clear();
+        for (Prescriber saved : prescriberService.saveAll(prescribers)) {
+            written.put(saved.getLicenseIdentificationNumber(), saved.getId());
+        }
+        return prescribers.size();
+    }
+
+    @Override
+    public void committed() {
+        prescriberIds.putAll(written);
+        written.clear();
+    }
+}
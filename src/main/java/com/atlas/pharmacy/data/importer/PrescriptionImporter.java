@@ -0,0 +1,150 @@
+package com.atlas.pharmacy.data.importer;
+
+import com.atlas.pharmacy.data.entity.Drug;
+import com.atlas.pharmacy.data.entity.Prescription;
+import com.atlas.pharmacy.data.search.CatalogueDrug;
+import com.atlas.pharmacy.data.service.DrugRepository;
+import com.atlas.pharmacy.data.service.DrugService;
+import com.atlas.pharmacy.data.service.PatientRepository;
+import com.atlas.pharmacy.data.service.PrescriberRepository;
+import com.atlas.pharmacy.data.service.PrescriptionService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Imports prescriptions, resolving the patient by health card ID, the prescriber by license number and the drug
+ * by drug code and ingredient name.
+ * <p>
+ * All references are looked up in maps loaded when the import starts, and rows are attached by reference, so a
+ * batch costs no selects for its patients, prescribers or drugs. A drug that is in the catalogue but not yet
+ * stored is stored on first use.
+ */
+class PrescriptionImporter implements RecordImporter<PrescriptionImporter.Draft> {
+
+    /**
+     * Marks a drug code shared by several stored drugs, which then needs an ingredient name.
+     */
+    static final long AMBIGUOUS = -1;
+
+    private final PrescriptionService prescriptionService;
+    private final DrugService drugService;
+    private final PatientRepository patientRepository;
+    private final PrescriberRepository prescriberRepository;
+    private final DrugRepository drugRepository;
+    private final Map<String, Long> patientIds;
+    private final Map<Long, Long> prescriberIds;
+    private final Map<String, Long> drugIds;
+    private final Map<Integer, Long> drugIdsByCode;
+
+    /**
+     * @param patientIds    IDs of the stored patients by health card ID.
+     * @param prescriberIds IDs of the stored prescribers by license number.
+     * @param drugIds       IDs of the stored drugs by {@link #drugKey(int, String)}.
+     * @param drugIdsByCode IDs of the stored drugs by drug code, or {@link #AMBIGUOUS}.
+     */
+    PrescriptionImporter(PrescriptionService prescriptionService, DrugService drugService,
+                         PatientRepository patientRepository, PrescriberRepository prescriberRepository,
+                         DrugRepository drugRepository, Map<String, Long> patientIds, Map<Long, Long> prescriberIds,
+                         Map<String, Long> drugIds, Map<Integer, Long> drugIdsByCode) {
+        this.prescriptionService = prescriptionService;
+        this.drugService = drugService;
+        this.patientRepository = patientRepository;
+        this.prescriberRepository = prescriberRepository;
+        this.drugRepository = drugRepository;
+        this.patientIds = patientIds;
+        this.prescriberIds = prescriberIds;
+        this.drugIds = drugIds;
+        this.drugIdsByCode = drugIdsByCode;
+    }
+
+    static String drugKey(int drugCode, String ingredientName) {
+        return drugCode + "|" + ingredientName.toUpperCase(Locale.ROOT);
+    }
+
+    @Override
+    public Draft convert(CsvRecord record) {
+        String healthCardId = record.require("healthCardId");
+        Long patientId = patientIds.get(healthCardId);
+        if (patientId == null) {
+            throw new IllegalArgumentException("No patient with health card " + healthCardId);
+        }
+
+        Long prescriberId = null;
+        if (record.get("licenseIdentificationNumber") != null) {
+            long license = record.requireLong("licenseIdentificationNumber");
+            prescriberId = prescriberIds.get(license);
+            if (prescriberId == null) {
+                throw new IllegalArgumentException("No prescriber with license number " + license);
+            }
+        }
+
+        int drugCode = (int) record.requireLong("drugCode");
+        String ingredientName = record.get("ingredientName");
+        Long drugId = ingredientName == null ? drugIdsByCode.get(drugCode) : drugIds.get(drugKey(drugCode, ingredientName));
+        if (drugId != null && drugId == AMBIGUOUS) {
+            throw new IllegalArgumentException("Drug code " + drugCode + " has several ingredients; ingredientName is required");
+        }
+        Drug catalogueDrug = drugId == null ? findInCatalogue(drugCode, ingredientName) : null;
+
+        Prescription prescription = new Prescription();
+        prescription.setDispenseDate(record.getDate("dispenseDate"));
+        prescription.setFrequency(record.get("frequency"));
+        prescription.setQuantity(record.getDouble("quantity", 0));
+        prescription.setRefills(record.getInt("refills", 0));
+        prescription.setDaySupplyDuration(record.getInt("daySupplyDuration", 0));
+        return new Draft(prescription, patientId, prescriberId, drugId, catalogueDrug);
+    }
+
+    private Drug findInCatalogue(int drugCode, String ingredientName) {
+        List<CatalogueDrug> matches = drugService.findCatalogueByCode(drugCode).stream()
+                .filter(drug -> ingredientName == null || ingredientName.equalsIgnoreCase(drug.getIngredient_name()))
+                .toList();
+        if (matches.isEmpty()) {
+            throw new IllegalArgumentException("No drug with code " + drugCode
+                    + (ingredientName == null ? "" : " and ingredient " + ingredientName));
+        }
+        if (matches.size() > 1) {
+            throw new IllegalArgumentException("Drug code " + drugCode + " has several ingredients; ingredientName is required");
+        }
+        return matches.get(0).toDrug();
+    }
+
+    @Override
+    public int write(List<Draft> batch) {
+        List<Prescription> prescriptions = new ArrayList<>(batch.size());
+        for (Draft draft : batch) {
+            Prescription prescription = draft.prescription();
+            prescription.setPatient(patientRepository.getReferenceById(draft.patientId()));
+            if (draft.prescriberId() != null) {
+                prescription.setPrescriber(prescriberRepository.getReferenceById(draft.prescriberId()));
+            }
+            prescription.setDrug(draft.drugId() != null ? drugRepository.getReferenceById(draft.drugId())
+                    : storeDrug(draft.catalogueDrug()));
+            prescriptions.add(prescription);
+        }
+        prescriptionService.saveAll(prescriptions);
+        return prescriptions.size();
+    }
+
+    private Drug storeDrug(Drug catalogueDrug) {
+        Long drugId = drugIds.get(drugKey(catalogueDrug.getDrug_code(), catalogueDrug.getIngredient_name()));
+        if (drugId != null) {
+            // Stored for an earlier record of the same batch
+            return drugRepository.getReferenceById(drugId);
+        }
+        // Later batches find the stored drug in the maps; a rolled back batch ends the import with them
+        Drug drug = drugService.resolve(catalogueDrug);
+        drugIds.put(drugKey(drug.getDrug_code(), drug.getIngredient_name()), drug.getId());
+        drugIdsByCode.merge(drug.getDrug_code(), drug.getId(), (stored, added) -> stored.equals(added) ? stored : AMBIGUOUS);
+        return drug;
+    }
+
+    /**
+     * A converted record, with its references resolved to IDs or, for a drug not stored yet, a catalogue entry.
+     */
+    record Draft(Prescription prescription, long patientId, Long prescriberId, Long drugId, Drug catalogueDrug) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.atlas.pharmacy.data.importer;
+
+import java.util.List;
+
+/**
+ * Conversion and storage of one type of import record, for the lifetime of one import.
+ *
+ * @param <T> Converted record.
+ */
+interface RecordImporter<T> {
+
+    /**
+     * Convert and validate a record. Called for the records of a batch in parallel, never concurrently
+     * with {@link #write(List)}.
+     *
+     * @throws IllegalArgumentException If the record is rejected; the message is reported to the user.
+     */
+    T convert(CsvRecord record);
+
+    /**
+     * Store a batch of converted records in the current transaction.
+     *
+     * @return Number of records stored; the others were skipped because they already exist.
+     */
+    int write(List<T> batch);
+
+    /**
+     * Called once the transaction of the last written batch has committed.
+     */
+    default void committed() {
+    }
+}
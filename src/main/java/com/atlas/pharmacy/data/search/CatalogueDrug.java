@@ -0,0 +1,58 @@
+package com.atlas.pharmacy.data.search;
+
+import com.atlas.pharmacy.data.entity.Drug;
+
+/**
+ * One row of a {@link DrugTable}, read in place.
+ * <p>
+ * A view is only a table reference and a row number: the getters read the columns directly and return the
+ * table's shared strings, so rendering a grid row allocates nothing beyond the view itself. The getters are
+ * named after the {@link Drug} properties, so grids and sort orders use the same property names for both.
+ * Views of the same row are equal.
+ */
+public record CatalogueDrug(DrugTable table, int row) {
+
+    public int getDrug_code() {
+        return table.drugCode(row);
+    }
+
+    public String getIngredient_name() {
+        return table.ingredientName(row);
+    }
+
+    public String getDosage_unit() {
+        return table.dosageUnit(row);
+    }
+
+    public String getDosage_value() {
+        return table.dosageValue(row);
+    }
+
+    public String getStrength() {
+        return table.strength(row);
+    }
+
+    public String getStrength_unit() {
+        return table.strengthUnit(row);
+    }
+
+    /**
+     * Copy the row into a new, unsaved entity.
+     */
+    public Drug toDrug() {
+        Drug drug = new Drug();
+        drug.setDrug_code(getDrug_code());
+        drug.setIngredient_name(getIngredient_name());
+        drug.setDosage_unit(getDosage_unit());
+        drug.setDosage_value(getDosage_value());
+        drug.setStrength(getStrength());
+        drug.setStrength_unit(getStrength_unit());
+        return drug;
+    }
+
+    @Override
+    public String toString() {
+        return getIngredient_name() + " " + getDosage_unit() + " " + getDosage_value() + " " + getStrength()
+                + " " + getStrength_unit();
+    }
+}
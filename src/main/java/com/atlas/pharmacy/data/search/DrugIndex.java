@@ -0,0 +1,628 @@
+package com.atlas.pharmacy.data.search;
+
+import com.atlas.pharmacy.data.entity.Drug;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable search index over a drug catalogue snapshot.
+ * <p>
+ * Ingredient names and drug codes are folded to lower case text once at build time. Each of the two
+ * columns keeps trigram postings for substring queries and a sorted row order for prefix queries, so a
+ * query only visits rows that can match. Drug codes are also kept in a primitive open-addressing map
+ * for exact lookups. The entries themselves are kept in a {@link DrugTable}.
+ */
+public final class DrugIndex {
+
+    private static final int TIER_EXACT_CODE = 0;
+    private static final int TIER_EXACT = 1;
+    private static final int TIER_PREFIX = 2;
+    private static final int TIER_WORD_PREFIX = 3;
+    private static final int TIER_SUBSTRING = 4;
+
+    private static final DrugIndex EMPTY = builder().build();
+
+    // Enough for every open grid to find its own query again between the count and the page requests
+    private static final int RECENT_SEARCHES = 64;
+    // Row numbers held by remembered results in total, 256 KiB; a larger result is not remembered at all
+    private static final int RECENT_ROWS = 1 << 16;
+
+    private final DrugTable table;
+    private final TextColumn names;
+    private final TextColumn codes;
+
+    // drug_code -> first row, further rows with the same code are chained through nextRowWithCode
+    private final int[] codeTable;
+    private final int[] rowTable;
+    private final int[] nextRowWithCode;
+
+    // Sort orders and their inverses, built on demand per property
+    private final Map<String, int[]> orders = new ConcurrentHashMap<>();
+    private final Map<String, int[]> positions = new ConcurrentHashMap<>();
+
+    // Recent results by query and limit, least recently used first, and their total length; guarded by the map
+    private final Map<SearchKey, int[]> recentSearches = new LinkedHashMap<>(16, 0.75f, true);
+    private int recentRows;
+
+    private DrugIndex(DrugTable table, TextColumn names, TextColumn codes) {
+        this.table = table;
+        this.names = names;
+        this.codes = codes;
+        int size = table.size();
+
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+        codeTable = new int[capacity];
+        rowTable = new int[capacity];
+        Arrays.fill(rowTable, -1);
+        nextRowWithCode = new int[size];
+        for (int row = size - 1; row >= 0; row--) {
+            int code = table.drugCode(row);
+            int slot = slotOf(code);
+            nextRowWithCode[row] = rowTable[slot];
+            codeTable[slot] = code;
+            rowTable[slot] = row;
+        }
+    }
+
+    /**
+     * Build an index over the given catalogue snapshot.
+     *
+     * @param drugs Catalogue entries; they are copied into the index's own table.
+     * @return A new index.
+     */
+    public static DrugIndex build(List<Drug> drugs) {
+        Builder builder = new Builder();
+        builder.addAll(drugs);
+        return builder.build();
+    }
+
+    /**
+     * Start an index to be filled incrementally, such as batch by batch while the catalogue is parsed.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static DrugIndex empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Get the indexed entries, in row order.
+     */
+    public DrugTable table() {
+        return table;
+    }
+
+    /**
+     * Get every catalogue entry with the given drug code.
+     *
+     * @param drugCode Drug code to look up.
+     * @return Entries sharing the code, one per active ingredient, otherwise an empty list.
+     */
+    public List<CatalogueDrug> findByCode(int drugCode) {
+        List<CatalogueDrug> result = new ArrayList<>();
+        for (int row = rowTable[slotOf(drugCode)]; row >= 0; row = nextRowWithCode[row]) {
+            result.add(table.get(row));
+        }
+        return result;
+    }
+
+    public CatalogueDrug get(int row) {
+        return table.get(row);
+    }
+
+    /**
+     * Search by drug code or ingredient name, best matches first.
+     * <p>
+     * Exact drug codes rank first, then exact values, prefixes, word prefixes and plain substrings.
+     * Ties go to the shorter ingredient name.
+     *
+     * @param query Text typed by the user; case is ignored.
+     * @param limit Maximum number of results.
+     * @return Matching entries in rank order.
+     */
+    public List<CatalogueDrug> search(String query, int limit) {
+        int[] rows = searchRows(query, limit);
+        List<CatalogueDrug> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(table.get(row));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Same as {@link #search(String, int)}, returning row numbers for {@link #get(int)}.
+     * The results of recent queries are remembered, since each lazy grid asks for a count and a page in turn
+     * while other users search the same index. Results matching a large part of the catalogue are computed
+     * again each time rather than kept. The returned array is shared and must not be modified.
+     */
+    public int[] searchRows(String query, int limit) {
+        if (query == null || query.isBlank() || limit <= 0 || table.size() == 0) {
+            return new int[0];
+        }
+        String trimmed = query.strip();
+        SearchKey key = new SearchKey(trimmed, limit);
+        int[] recent;
+        synchronized (recentSearches) {
+            recent = recentSearches.get(key);
+        }
+        if (recent != null) {
+            return recent;
+        }
+
+        char[] folded = new char[trimmed.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(trimmed.charAt(i));
+        }
+
+        TopK top = new TopK(limit);
+        BitSet seen = new BitSet(table.size());
+        if (isNumeric(folded)) {
+            if (folded.length <= 9) {
+                int code = Integer.parseInt(trimmed);
+                for (int row = rowTable[slotOf(code)]; row >= 0; row = nextRowWithCode[row]) {
+                    offer(top, seen, TIER_EXACT_CODE, row);
+                }
+            }
+            match(codes, folded, top, seen);
+        }
+        match(names, folded, top, seen);
+
+        long[] ranked = top.sorted();
+        int[] rows = new int[ranked.length];
+        for (int i = 0; i < ranked.length; i++) {
+            rows[i] = (int) ranked[i];
+        }
+        if (rows.length <= RECENT_ROWS) {
+            remember(key, rows);
+        }
+        return rows;
+    }
+
+    private void remember(SearchKey key, int[] rows) {
+        synchronized (recentSearches) {
+            int[] previous = recentSearches.put(key, rows);
+            recentRows += rows.length - (previous == null ? 0 : previous.length);
+            // The entry just put is the most recent and fits on its own, so it is never the one evicted
+            Iterator<int[]> eldest = recentSearches.values().iterator();
+            while (recentSearches.size() > RECENT_SEARCHES || recentRows > RECENT_ROWS) {
+                recentRows -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Get all rows in ascending order of a {@link Drug} property.
+     * The order is computed on first use and shared for the lifetime of the index; it must not be modified.
+     *
+     * @param property Name of a sortable drug property, such as {@code ingredient_name}.
+     * @return Row numbers in sorted order.
+     */
+    public int[] sortedRows(String property) {
+        return orders.computeIfAbsent(property, this::computeOrder);
+    }
+
+    /**
+     * Reorder a subset of rows, such as a search result, by a {@link Drug} property.
+     *
+     * @param rows     Rows to sort; the array is not modified.
+     * @param property Name of a sortable drug property.
+     * @return A new array with the rows in ascending order.
+     */
+    public int[] sort(int[] rows, String property) {
+        int[] order = sortedRows(property);
+        int[] position = positions.computeIfAbsent(property, key -> {
+            int[] inverse = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                inverse[order[i]] = i;
+            }
+            return inverse;
+        });
+        // Pack the position in the sorted order above the row so a primitive sort does the work
+        long[] keyed = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            keyed[i] = ((long) position[rows[i]] << 32) | rows[i];
+        }
+        Arrays.sort(keyed);
+        int[] result = new int[rows.length];
+        for (int i = 0; i < keyed.length; i++) {
+            result[i] = (int) keyed[i];
+        }
+        return result;
+    }
+
+    private int[] computeOrder(String property) {
+        int[] keys = table.sortKeys(property);
+        // Pack the key above the row: a primitive sort then orders by key, ties in row order
+        long[] keyed = new long[keys.length];
+        for (int row = 0; row < keys.length; row++) {
+            keyed[row] = ((long) keys[row] << 32) | row;
+        }
+        Arrays.sort(keyed);
+        int[] order = new int[keyed.length];
+        for (int i = 0; i < keyed.length; i++) {
+            order[i] = (int) keyed[i];
+        }
+        return order;
+    }
+
+    private void match(TextColumn column, char[] query, TopK top, BitSet seen) {
+        // Prefix matches outrank every other match in the column, so enough of them make the rest moot
+        int prefixMatches = 0;
+        for (int i = column.lowerBound(query); i < column.sorted.length && column.startsWith(column.sorted[i], query); i++) {
+            int row = column.sorted[i];
+            offer(top, seen, column.length(row) == query.length ? TIER_EXACT : TIER_PREFIX, row);
+            prefixMatches++;
+        }
+        if (prefixMatches >= top.limit) {
+            return;
+        }
+
+        if (query.length >= 3) {
+            for (int row : column.candidates(query)) {
+                offerInfix(column, row, query, top, seen);
+            }
+        } else {
+            // Too short for trigrams; the folded text is scanned in place
+            for (int row = 0; row < column.rows(); row++) {
+                offerInfix(column, row, query, top, seen);
+            }
+        }
+    }
+
+    private void offerInfix(TextColumn column, int row, char[] query, TopK top, BitSet seen) {
+        if (seen.get(row)) {
+            return;
+        }
+        int position = column.indexOf(row, query);
+        if (position > 0) {
+            boolean wordStart = !Character.isLetterOrDigit(column.charAt(row, position - 1));
+            offer(top, seen, wordStart ? TIER_WORD_PREFIX : TIER_SUBSTRING, row);
+        }
+    }
+
+    private void offer(TopK top, BitSet seen, int tier, int row) {
+        if (!seen.get(row)) {
+            seen.set(row);
+            top.offer(tier, names.length(row), row);
+        }
+    }
+
+    private int slotOf(int code) {
+        int mask = codeTable.length - 1;
+        int slot = mix(code) & mask;
+        while (rowTable[slot] >= 0 && codeTable[slot] != code) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    private static boolean isNumeric(char[] query) {
+        for (char c : query) {
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects entries into the table and folds their text as they arrive, so no intermediate copy of the
+     * catalogue is kept. Postings and sort orders are computed once, by {@link #build()}.
+     */
+    public static final class Builder {
+
+        private final DrugTable.Builder table = DrugTable.builder();
+        private final TextBuffer names = new TextBuffer();
+        private final TextBuffer codes = new TextBuffer();
+
+        private Builder() {
+        }
+
+        /**
+         * Add an entry. Only its values are kept, not the entity.
+         */
+        public Builder add(Drug drug) {
+            table.add(drug.getDrug_code(), drug.getIngredient_name(), drug.getDosage_unit(), drug.getDosage_value(),
+                    drug.getStrength(), drug.getStrength_unit());
+            names.add(drug.getIngredient_name());
+            codes.add(String.valueOf(drug.getDrug_code()));
+            return this;
+        }
+
+        public Builder addAll(List<Drug> batch) {
+            for (Drug drug : batch) {
+                add(drug);
+            }
+            return this;
+        }
+
+        /**
+         * Build the index over the entries added so far. The builder must not be used afterwards.
+         */
+        public DrugIndex build() {
+            return new DrugIndex(table.build(), names.toColumn(), codes.toColumn());
+        }
+    }
+
+    /**
+     * Folded text values appended back to back, growing as needed.
+     */
+    private static final class TextBuffer {
+
+        private char[] text = new char[1024];
+        private int[] offsets = new int[257];
+        private int rows;
+
+        void add(String value) {
+            int start = offsets[rows];
+            int length = value == null ? 0 : value.length();
+            if (start + length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, start + length));
+            }
+            for (int i = 0; i < length; i++) {
+                text[start + i] = fold(value.charAt(i));
+            }
+            if (rows + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[++rows] = start + length;
+        }
+
+        TextColumn toColumn() {
+            return new TextColumn(Arrays.copyOf(text, offsets[rows]), Arrays.copyOf(offsets, rows + 1));
+        }
+    }
+
+    private record SearchKey(String query, int limit) {
+    }
+
+    /**
+     * One folded text value per row, stored back to back, with trigram postings and a sorted row order.
+     */
+    private static final class TextColumn {
+
+        // Row i occupies text[offsets[i]] until text[offsets[i + 1]]
+        private final char[] text;
+        private final int[] offsets;
+        // Rows ordered by their folded text
+        private final int[] sorted;
+        // Sorted trigram keys, and for each key the ascending rows containing it
+        private final long[] trigramKeys;
+        private final int[][] trigramRows;
+
+        TextColumn(char[] text, int[] offsets) {
+            this.text = text;
+            this.offsets = offsets;
+            int size = offsets.length - 1;
+
+            sorted = IntStream.range(0, size).boxed()
+                    .sorted(this::compareRows)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+            Map<Long, IntList> postings = new HashMap<>();
+            for (int row = 0; row < size; row++) {
+                for (int i = offsets[row]; i + 3 <= offsets[row + 1]; i++) {
+                    IntList rows = postings.computeIfAbsent(trigram(text, i), key -> new IntList());
+                    if (rows.size == 0 || rows.last() != row) {
+                        rows.add(row);
+                    }
+                }
+            }
+            trigramKeys = postings.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            trigramRows = new int[trigramKeys.length][];
+            for (int i = 0; i < trigramKeys.length; i++) {
+                trigramRows[i] = postings.get(trigramKeys[i]).toArray();
+            }
+        }
+
+        int rows() {
+            return offsets.length - 1;
+        }
+
+        int length(int row) {
+            return offsets[row + 1] - offsets[row];
+        }
+
+        char charAt(int row, int index) {
+            return text[offsets[row] + index];
+        }
+
+        /**
+         * Rows containing every trigram of the query: a superset of the rows containing the query.
+         */
+        int[] candidates(char[] query) {
+            int[] shortest = null;
+            for (int i = 0; i + 3 <= query.length; i++) {
+                int found = Arrays.binarySearch(trigramKeys, trigram(query, i));
+                if (found < 0) {
+                    return new int[0];
+                }
+                if (shortest == null || trigramRows[found].length < shortest.length) {
+                    shortest = trigramRows[found];
+                }
+            }
+            return shortest;
+        }
+
+        int indexOf(int row, char[] query) {
+            int start = offsets[row];
+            int end = offsets[row + 1];
+            outer:
+            for (int i = start; i <= end - query.length; i++) {
+                for (int j = 0; j < query.length; j++) {
+                    if (text[i + j] != query[j]) {
+                        continue outer;
+                    }
+                }
+                return i - start;
+            }
+            return -1;
+        }
+
+        boolean startsWith(int row, char[] query) {
+            return length(row) >= query.length && compare(row, query, query.length) == 0;
+        }
+
+        /**
+         * First position in the sorted order whose text is not less than the query.
+         */
+        int lowerBound(char[] query) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(sorted[mid], query, Integer.MAX_VALUE) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int compareRows(int a, int b) {
+            int common = Math.min(length(a), length(b));
+            for (int i = 0; i < common; i++) {
+                if (charAt(a, i) != charAt(b, i)) {
+                    return Character.compare(charAt(a, i), charAt(b, i));
+                }
+            }
+            return Integer.compare(length(a), length(b));
+        }
+
+        private int compare(int row, char[] query, int maxLength) {
+            int length = Math.min(length(row), maxLength);
+            int queryLength = Math.min(query.length, maxLength);
+            int common = Math.min(length, queryLength);
+            for (int i = 0; i < common; i++) {
+                if (charAt(row, i) != query[i]) {
+                    return Character.compare(charAt(row, i), query[i]);
+                }
+            }
+            return Integer.compare(length, queryLength);
+        }
+
+        private static long trigram(char[] chars, int at) {
+            return ((long) chars[at] << 32) | ((long) chars[at + 1] << 16) | chars[at + 2];
+        }
+    }
+
+    /**
+     * Bounded max-heap keeping the best entries. Each entry packs tier, name length and row into a long
+     * so that a smaller value ranks higher.
+     */
+    private static final class TopK {
+
+        private final int limit;
+        private long[] heap;
+        private int size;
+
+        TopK(int limit) {
+            this.limit = limit;
+            this.heap = new long[Math.min(limit, 64)];
+        }
+
+        void offer(int tier, int nameLength, int row) {
+            long entry = ((long) tier << 56) | ((long) Math.min(nameLength, 0xFFFFFF) << 32) | row;
+            if (size == heap.length && size < limit) {
+                heap = Arrays.copyOf(heap, (int) Math.min((long) size * 2, limit));
+            }
+            if (size < heap.length) {
+                heap[size] = entry;
+                siftUp(size++);
+            } else if (entry < heap[0]) {
+                heap[0] = entry;
+                siftDown(0);
+            }
+        }
+
+        long[] sorted() {
+            long[] result = Arrays.copyOf(heap, size);
+            Arrays.sort(result);
+            return result;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] >= heap[i]) {
+                    return;
+                }
+                swap(parent, i);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                int largest = i;
+                if (left < size && heap[left] > heap[largest]) {
+                    largest = left;
+                }
+                if (left + 1 < size && heap[left + 1] > heap[largest]) {
+                    largest = left + 1;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int last() {
+            return values[size - 1];
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
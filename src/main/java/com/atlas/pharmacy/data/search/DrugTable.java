@@ -0,0 +1,223 @@
+package com.atlas.pharmacy.data.search;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only, column-oriented store of drug catalogue entries.
+ * <p>
+ * Each property is a column indexed by row. Drug codes are kept in an {@code int[]}; every text property is
+ * dictionary encoded: the distinct values are stored once and each row holds the index of its value, two
+ * bytes wide unless a column has more than 65536 distinct values. Units, dosage values and strengths repeat
+ * across most of the catalogue, and each ingredient name appears once per product containing it, so this
+ * holds a fraction of what one entity per entry would. Rows are read through {@link CatalogueDrug}.
+ */
+public final class DrugTable {
+
+    private static final String DRUG_CODE = "drug_code";
+
+    private final int[] codes;
+    private final EncodedColumn ingredientNames;
+    private final EncodedColumn dosageUnits;
+    private final EncodedColumn dosageValues;
+    private final EncodedColumn strengths;
+    private final EncodedColumn strengthUnits;
+
+    private DrugTable(Builder builder) {
+        codes = Arrays.copyOf(builder.codes, builder.size);
+        ingredientNames = builder.ingredientNames.build(builder.size);
+        dosageUnits = builder.dosageUnits.build(builder.size);
+        dosageValues = builder.dosageValues.build(builder.size);
+        strengths = builder.strengths.build(builder.size);
+        strengthUnits = builder.strengthUnits.build(builder.size);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * Get a view of one row. The view holds no data of its own.
+     */
+    public CatalogueDrug get(int row) {
+        return new CatalogueDrug(this, row);
+    }
+
+    public int drugCode(int row) {
+        return codes[row];
+    }
+
+    public String ingredientName(int row) {
+        return ingredientNames.get(row);
+    }
+
+    public String dosageUnit(int row) {
+        return dosageUnits.get(row);
+    }
+
+    public String dosageValue(int row) {
+        return dosageValues.get(row);
+    }
+
+    public String strength(int row) {
+        return strengths.get(row);
+    }
+
+    public String strengthUnit(int row) {
+        return strengthUnits.get(row);
+    }
+
+    /**
+     * Get a sort key per row for a property: rows compare as their keys do, with null text first.
+     *
+     * @param property Name of a drug property, such as {@code ingredient_name}.
+     * @return One key per row; the array is shared and must not be modified.
+     * @throws IllegalArgumentException If the property is not a column.
+     */
+    int[] sortKeys(String property) {
+        if (DRUG_CODE.equals(property)) {
+            return codes;
+        }
+        EncodedColumn column = switch (property) {
+            case "ingredient_name" -> ingredientNames;
+            case "dosage_unit" -> dosageUnits;
+            case "dosage_value" -> dosageValues;
+            case "strength" -> strengths;
+            case "strength_unit" -> strengthUnits;
+            default -> throw new IllegalArgumentException("Drugs cannot be sorted by " + property);
+        };
+        // Sorting the dictionary once turns every comparison into an integer comparison
+        int[] ranks = column.ranks();
+        int[] keys = new int[size()];
+        for (int row = 0; row < keys.length; row++) {
+            keys[row] = ranks[column.id(row)];
+        }
+        return keys;
+    }
+
+    /**
+     * Collects rows one by one. Equal text values are stored as one shared instance as they arrive.
+     */
+    public static final class Builder {
+
+        private int[] codes = new int[256];
+        private int size;
+        private final ColumnBuilder ingredientNames = new ColumnBuilder();
+        private final ColumnBuilder dosageUnits = new ColumnBuilder();
+        private final ColumnBuilder dosageValues = new ColumnBuilder();
+        private final ColumnBuilder strengths = new ColumnBuilder();
+        private final ColumnBuilder strengthUnits = new ColumnBuilder();
+
+        private Builder() {
+        }
+
+        public Builder add(int drugCode, String ingredientName, String dosageUnit, String dosageValue,
+                           String strength, String strengthUnit) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            codes[size++] = drugCode;
+            ingredientNames.add(ingredientName);
+            dosageUnits.add(dosageUnit);
+            dosageValues.add(dosageValue);
+            strengths.add(strength);
+            strengthUnits.add(strengthUnit);
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Build the table from the rows added so far. The builder must not be used afterwards.
+         */
+        public DrugTable build() {
+            return new DrugTable(this);
+        }
+    }
+
+    /**
+     * A text column as a dictionary of distinct values and one dictionary index per row.
+     */
+    private static final class EncodedColumn {
+
+        private final String[] values;
+        // Exactly one of the two is set, depending on the size of the dictionary
+        private final char[] narrowIds;
+        private final int[] wideIds;
+
+        EncodedColumn(String[] values, int[] ids) {
+            this.values = values;
+            if (values.length <= Character.MAX_VALUE + 1) {
+                narrowIds = new char[ids.length];
+                for (int row = 0; row < ids.length; row++) {
+                    narrowIds[row] = (char) ids[row];
+                }
+                wideIds = null;
+            } else {
+                narrowIds = null;
+                wideIds = ids;
+            }
+        }
+
+        int id(int row) {
+            return narrowIds != null ? narrowIds[row] : wideIds[row];
+        }
+
+        String get(int row) {
+            return values[id(row)];
+        }
+
+        /**
+         * The position of each dictionary value in sorted order, nulls first.
+         */
+        int[] ranks() {
+            Integer[] order = new Integer[values.length];
+            for (int id = 0; id < order.length; id++) {
+                order[id] = id;
+            }
+            Comparator<String> comparator = Comparator.nullsFirst(Comparator.naturalOrder());
+            Arrays.sort(order, (a, b) -> comparator.compare(values[a], values[b]));
+            int[] ranks = new int[values.length];
+            for (int i = 0; i < order.length; i++) {
+                ranks[order[i]] = i;
+            }
+            return ranks;
+        }
+    }
+
+    private static final class ColumnBuilder {
+
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private String[] values = new String[16];
+        private int[] ids = new int[256];
+        private int rows;
+
+        void add(String value) {
+            Integer id = dictionary.get(value);
+            if (id == null) {
+                id = dictionary.size();
+                dictionary.put(value, id);
+                if (id == values.length) {
+                    values = Arrays.copyOf(values, id * 2);
+                }
+                values[id] = value;
+            }
+            if (rows == ids.length) {
+                ids = Arrays.copyOf(ids, rows * 2);
+            }
+            ids[rows++] = id;
+        }
+
+        EncodedColumn build(int size) {
+            return new EncodedColumn(Arrays.copyOf(values, dictionary.size()), Arrays.copyOf(ids, size));
+        }
+    }
+}
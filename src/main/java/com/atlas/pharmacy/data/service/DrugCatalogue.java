@@ -0,0 +1,137 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.data.search.DrugIndex;
+import com.atlas.pharmacy.data.search.DrugTable;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Local copy of the upstream drug catalogue.
+ * <p>
+ * The catalogue is refreshed in the background and every read is served from memory; a read never waits on
+ * the upstream. The entries are shared between sessions and are read-only. They are held in the table of
+ * their search index, so each load publishes both at once and readers never see one without the other.
+ * <p>
+ * Every successful download is also stored on disk. That copy is published when the application starts,
+ * before the first download, and remains in use for as long as the upstream is unreachable. Without one,
+ * the catalogue is empty until a download completes.
+ */
+@Component
+public class DrugCatalogue {
+
+    private static final Logger log = LoggerFactory.getLogger(DrugCatalogue.class);
+
+    private final DrugCatalogueClient client;
+    private final DrugCatalogueFile file;
+    // The refresh in progress, if any; only one runs at a time
+    private final AtomicReference<CompletableFuture<Void>> refreshing = new AtomicReference<>();
+
+    private volatile DrugIndex index = DrugIndex.empty();
+    // Written by a refresh before it completes, read by the next one
+    private volatile String etag;
+    private volatile String lastModified;
+
+    public DrugCatalogue(DrugCatalogueClient client, DrugCatalogueFile file) {
+        this.client = client;
+        this.file = file;
+    }
+
+    /**
+     * Get the current catalogue.
+     *
+     * @return The catalogue entries, none if neither the upstream nor a stored copy has been available yet.
+     */
+    public DrugTable getTable() {
+        return index.table();
+    }
+
+    /**
+     * Get the search index over the current catalogue.
+     *
+     * @return Index over the entries returned by {@link #getTable()}.
+     */
+    public DrugIndex getIndex() {
+        return index;
+    }
+
+    @Scheduled(initialDelayString = "${atlas.drug-catalogue.initial-delay:PT0S}",
+            fixedDelayString = "${atlas.drug-catalogue.refresh-interval:PT6H}")
+    public void refresh() {
+        refreshAsync();
+    }
+
+    /**
+     * Start a refresh unless one is already running. The current catalogue stays in use until the download
+     * completes, and after it fails.
+     *
+     * @return Completes once the running refresh has published, kept or given up on the new catalogue.
+     */
+    CompletableFuture<Void> refreshAsync() {
+        CompletableFuture<Void> refresh = new CompletableFuture<>();
+        CompletableFuture<Void> running = refreshing.compareAndExchange(null, refresh);
+        if (running != null) {
+            return running;
+        }
+        client.fetchAsync(etag, lastModified).whenComplete((response, failure) -> {
+            try {
+                if (failure == null) {
+                    publish(response);
+                } else {
+                    // Keep serving the previous copy, or the stored one; the next scheduled run retries.
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure;
+                    log.warn("Drug catalogue refresh failed: {}", cause.getMessage());
+                }
+            } finally {
+                refreshing.set(null);
+                refresh.complete(null);
+            }
+        });
+        return refresh;
+    }
+
+    private void publish(DrugCatalogueClient.Response response) {
+        if (response.notModified()) {
+            log.debug("Drug catalogue not modified");
+            return;
+        }
+        index = response.index();
+        etag = response.etag();
+        lastModified = response.lastModified();
+        log.info("Drug catalogue loaded with {} entries", response.index().size());
+        store(response.index().table());
+    }
+
+    /**
+     * Publish the stored copy. The validators are not stored with it, so the next refresh downloads in full.
+     */
+    @PostConstruct
+    void loadStoredCopy() {
+        try {
+            Optional<DrugIndex> stored = file.read();
+            if (stored.isPresent()) {
+                index = stored.get();
+                log.info("Drug catalogue loaded with {} entries from the stored copy", index.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Stored drug catalogue could not be read: {}", e.getMessage());
+        }
+    }
+
+    private void store(DrugTable table) {
+        try {
+            file.write(table);
+        } catch (IOException e) {
+            log.warn("Drug catalogue could not be stored: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.concurrent.CircuitBreaker;
+import com.atlas.pharmacy.data.search.DrugIndex;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads the Health Canada active ingredient list.
+ * <p>
+ * Requests are conditional: the validators of the last response are sent back so an unchanged
+ * catalogue costs a 304 instead of a full download. The URL is configurable so the client can be
+ * pointed at a local stand-in for the upstream API.
+ * <p>
+ * One pooled HTTP client is shared by all requests, and no request blocks the calling thread. An attempt
+ * whose response has not started within the hedge delay gets a second, concurrent attempt, and the first
+ * response wins. A failed attempt is retried after a backoff. After repeated failures a circuit breaker
+ * refuses requests for a while, so callers fall back to their local copy at once.
+ * <p>
+ * The body is parsed as it streams in and each batch of entries goes straight into the search index, so
+ * the payload is never buffered next to the entries built from it.
+ */
+@Component
+public class DrugCatalogueClient {
+
+    private final HttpClient httpClient;
+    private final URI uri;
+    private final Duration readTimeout;
+    private final Duration hedgeDelay;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final CircuitBreaker circuitBreaker;
+    // Bodies are parsed as they stream in, which blocks; kept off the common pool, one thread per hedged twin
+    private final ExecutorService parser = Executors.newFixedThreadPool(2,
+            runnable -> new Thread(runnable, "drug-catalogue"));
+
+    public DrugCatalogueClient(@Value("${atlas.drug-catalogue.url}") String url,
+                               @Value("${atlas.drug-catalogue.connect-timeout:PT5S}") Duration connectTimeout,
+                               @Value("${atlas.drug-catalogue.read-timeout:PT60S}") Duration readTimeout,
+                               @Value("${atlas.drug-catalogue.hedge-delay:PT3S}") Duration hedgeDelay,
+                               @Value("${atlas.drug-catalogue.max-attempts:3}") int maxAttempts,
+                               @Value("${atlas.drug-catalogue.retry-backoff:PT2S}") Duration retryBackoff,
+                               @Value("${atlas.drug-catalogue.breaker-failures:3}") int breakerFailures,
+                               @Value("${atlas.drug-catalogue.breaker-open:PT5M}") Duration breakerOpen) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.uri = URI.create(url);
+        this.readTimeout = readTimeout;
+        this.hedgeDelay = hedgeDelay;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.circuitBreaker = new CircuitBreaker("drug-catalogue", breakerFailures, breakerOpen);
+    }
+
+    /**
+     * Fetch the catalogue unless it is unchanged since the given validators.
+     *
+     * @param etag         ETag of the last successful response, or null.
+     * @param lastModified Last-Modified of the last successful response, or null.
+     * @return The response, or a future failed with {@link CatalogueUnavailableException}.
+     */
+    public CompletableFuture<Response> fetchAsync(String etag, String lastModified) {
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new CatalogueUnavailableException(
+                    "Drug catalogue requests are suspended after repeated failures", null));
+        }
+        HttpRequest request = request(etag, lastModified);
+        return attempt(request, etag, lastModified, 1).whenComplete((response, failure) -> {
+            if (failure == null) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+        });
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parser.shutdownNow();
+    }
+
+    private CompletableFuture<Response> attempt(HttpRequest request, String etag, String lastModified, int attempt) {
+        return hedged(request, etag, lastModified).handle((response, failure) -> {
+            if (failure == null) {
+                return CompletableFuture.completedFuture(response);
+            }
+            if (attempt >= maxAttempts) {
+                return CompletableFuture.<Response>failedFuture(unavailable(failure));
+            }
+            Executor backoff = CompletableFuture.delayedExecutor(
+                    retryBackoff.toMillis() * attempt, TimeUnit.MILLISECONDS);
+            return CompletableFuture.supplyAsync(() -> null, backoff)
+                    .thenCompose(ignored -> attempt(request, etag, lastModified, attempt + 1));
+        }).thenCompose(future -> future);
+    }
+
+    /**
+     * Send the request, and once more if the first response has not started within the hedge delay.
+     * The first successful response is used and the other request cancelled; it fails only if both fail.
+     * <p>
+     * The request timeout only covers the wait for the response headers, so the attempt as a whole, body
+     * included, is failed after the read timeout. Once the attempt is over every body still open is closed,
+     * which also ends a read blocked on an upstream that stalled after sending the headers.
+     */
+    private CompletableFuture<Response> hedged(HttpRequest request, String etag, String lastModified) {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        List<InputStream> bodies = new CopyOnWriteArrayList<>();
+        result.orTimeout(readTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((response, failure) -> bodies.forEach(DrugCatalogueClient::closeQuietly));
+        AtomicInteger pending = new AtomicInteger(1);
+        CompletableFuture<HttpResponse<InputStream>> first =
+                send(request, result, bodies, pending, etag, lastModified);
+        CompletableFuture.delayedExecutor(hedgeDelay.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (first.isDone() || result.isDone()) {
+                return;
+            }
+            pending.incrementAndGet();
+            CompletableFuture<HttpResponse<InputStream>> second =
+                    send(request, result, bodies, pending, etag, lastModified);
+            result.whenComplete((response, failure) -> {
+                first.cancel(true);
+                second.cancel(true);
+            });
+        });
+        return result;
+    }
+
+    private CompletableFuture<HttpResponse<InputStream>> send(HttpRequest request, CompletableFuture<Response> result,
+                                                              List<InputStream> bodies, AtomicInteger pending,
+                                                              String etag, String lastModified) {
+        CompletableFuture<HttpResponse<InputStream>> sent =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        sent.thenApply(response -> {
+                    bodies.add(response.body());
+                    // The attempt may have ended before the body was registered
+                    if (result.isDone()) {
+                        closeQuietly(response.body());
+                    }
+                    return response;
+                })
+                .thenApplyAsync(response -> read(response, result, etag, lastModified), parser)
+                .whenComplete((response, failure) -> {
+                    if (failure == null) {
+                        result.complete(response);
+                    } else if (pending.decrementAndGet() == 0) {
+                        result.completeExceptionally(unavailable(failure));
+                    }
+                });
+        return sent;
+    }
+
+    private Response read(HttpResponse<InputStream> response, CompletableFuture<Response> result,
+                          String etag, String lastModified) {
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == HttpStatus.NOT_MODIFIED.value()) {
+                return new Response(true, null, etag, lastModified);
+            }
+            if (response.statusCode() != HttpStatus.OK.value()) {
+                throw new CatalogueUnavailableException("Drug catalogue answered " + response.statusCode(), null);
+            }
+            DrugIndex.Builder index = DrugIndex.builder();
+            DrugCatalogueParser.parse(body, DrugCatalogueParser.DEFAULT_BATCH_SIZE, batch -> {
+                // The hedged twin of this request already won; stop downloading a second copy
+                if (result.isDone()) {
+                    throw new CancellationException();
+                }
+                index.addAll(batch);
+            });
+            return new Response(false, index.build(),
+                    response.headers().firstValue(HttpHeaders.ETAG).orElse(null),
+                    response.headers().firstValue(HttpHeaders.LAST_MODIFIED).orElse(null));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpRequest request(String etag, String lastModified) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .header(HttpHeaders.ACCEPT, "application/json")
+                .GET();
+        if (etag != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            request.header(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+        return request.build();
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // Only closed to release the connection; the attempt has already ended
+        }
+    }
+
+    private static CatalogueUnavailableException unavailable(Throwable failure) {
+        while ((failure instanceof CompletionException || failure instanceof ExecutionException)
+                && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        if (failure instanceof CatalogueUnavailableException unavailable) {
+            return unavailable;
+        }
+        if (failure instanceof TimeoutException) {
+            return new CatalogueUnavailableException("Drug catalogue response did not complete in time", failure);
+        }
+        if (failure instanceof CancellationException) {
+            return new CatalogueUnavailableException("Drug catalogue request cancelled", failure);
+        }
+        return new CatalogueUnavailableException("Drug catalogue request failed: " + failure.getMessage(), failure);
+    }
+
+    public record Response(boolean notModified, DrugIndex index, String etag, String lastModified) {
+    }
+
+    /**
+     * The catalogue could not be fetched: every attempt failed, timed out, or was refused by the breaker.
+     */
+    public static class CatalogueUnavailableException extends RuntimeException {
+
+        public CatalogueUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.data.search.DrugIndex;
+import com.atlas.pharmacy.data.search.DrugTable;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * The last catalogue downloaded, kept on disk so a restart does not depend on the upstream being reachable.
+ * <p>
+ * The file uses the upstream format, written and read entry by entry. It is replaced atomically, so a
+ * crash while writing leaves the previous copy in place.
+ */
+@Component
+public class DrugCatalogueFile {
+
+    private final ObjectMapper objectMapper;
+    private final Path path;
+
+    public DrugCatalogueFile(ObjectMapper objectMapper,
+                             @Value("${atlas.drug-catalogue.local-copy:/var/lib/atlas/drug-catalogue.json}") Path path) {
+        this.objectMapper = objectMapper;
+        this.path = path;
+    }
+
+    /**
+     * Read the stored catalogue.
+     *
+     * @return Index over the stored entries, or empty if nothing has been stored yet.
+     * @throws IOException If the file exists but cannot be read.
+     */
+    public Optional<DrugIndex> read() throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        DrugIndex.Builder index = DrugIndex.builder();
+        try (InputStream in = Files.newInputStream(path)) {
+            DrugCatalogueParser.parse(in, DrugCatalogueParser.DEFAULT_BATCH_SIZE, index::addAll);
+        }
+        return Optional.of(index.build());
+    }
+
+    /**
+     * Replace the stored catalogue.
+     *
+     * @param table Entries as downloaded.
+     * @throws IOException If the file cannot be written; the previous copy is left in place.
+     */
+    public void write(DrugTable table) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "drug-catalogue", ".tmp");
+        try {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(temp.toFile(), JsonEncoding.UTF8)) {
+                json.writeStartArray();
+                for (int row = 0; row < table.size(); row++) {
+                    json.writeStartObject();
+                    json.writeNumberField("drug_code", table.drugCode(row));
+                    json.writeStringField("ingredient_name", table.ingredientName(row));
+                    json.writeStringField("dosage_unit", table.dosageUnit(row));
+                    json.writeStringField("dosage_value", table.dosageValue(row));
+                    json.writeStringField("strength", table.strength(row));
+                    json.writeStringField("strength_unit", table.strengthUnit(row));
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
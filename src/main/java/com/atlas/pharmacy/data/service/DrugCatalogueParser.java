@@ -0,0 +1,92 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.data.entity.Drug;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads the catalogue JSON, an array of ingredient entries, token by token.
+ * <p>
+ * Only the parser's buffer and the current batch are held besides what the consumer keeps, so the raw
+ * payload is never in memory as a whole. Fields are bound by hand rather than through data binding, which
+ * would resolve a bean deserializer and buffer each entry; unknown fields are skipped.
+ */
+public final class DrugCatalogueParser {
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private DrugCatalogueParser() {
+    }
+
+    /**
+     * Parse a catalogue, handing the entries over in batches as they are read.
+     *
+     * @param in        Catalogue JSON; not closed.
+     * @param batchSize Entries per batch.
+     * @param batches   Receives each batch; the list is reused once the consumer returns.
+     * @return Number of entries read.
+     * @throws IOException If the input cannot be read or is not a catalogue.
+     */
+    public static int parse(InputStream in, int batchSize, Consumer<List<Drug>> batches) throws IOException {
+        int count = 0;
+        List<Drug> batch = new ArrayList<>(batchSize);
+        try (JsonParser parser = JSON.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Drug catalogue is not an array");
+            }
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new JsonParseException(parser, "Drug catalogue entry is not an object");
+                }
+                batch.add(readDrug(parser));
+                count++;
+                if (batch.size() == batchSize) {
+                    batches.accept(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.accept(batch);
+        }
+        return count;
+    }
+
+    private static Drug readDrug(JsonParser parser) throws IOException {
+        Drug drug = new Drug();
+        for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "drug_code" -> drug.setDrug_code(parser.getValueAsInt());
+                case "ingredient_name" -> drug.setIngredient_name(text(parser, value));
+                case "dosage_unit" -> drug.setDosage_unit(text(parser, value));
+                case "dosage_value" -> drug.setDosage_value(text(parser, value));
+                case "strength" -> drug.setStrength(text(parser, value));
+                case "strength_unit" -> drug.setStrength_unit(text(parser, value));
+                default -> parser.skipChildren();
+            }
+        }
+        return drug;
+    }
+
+    private static String text(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!value.isScalarValue()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.data.entity.DrugPrescriptionCount;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface DrugPrescriptionCountRepository extends JpaRepository<DrugPrescriptionCount, Long> {
+
+    @Modifying
+    @Query("UPDATE DrugPrescriptionCount c SET c.total = c.total + :delta WHERE c.drugId = :drugId")
+    int increment(@Param("drugId") Long drugId, @Param("delta") long delta);
+
+    // Never merges, so a counter created concurrently fails the insert instead of being reset
+    @Modifying
+    @Query("INSERT INTO DrugPrescriptionCount (drugId, total) VALUES (:drugId, 0)")
+    int insertZero(@Param("drugId") Long drugId);
+
+    @Query("SELECT c.drugId FROM DrugPrescriptionCount c WHERE c.drugId IN :drugIds")
+    List<Long> findExisting(@Param("drugIds") Collection<Long> drugIds);
+
+    // Locked in key order, so concurrent batches touching the same counters cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM DrugPrescriptionCount c WHERE c.drugId IN :drugIds ORDER BY c.drugId")
+    List<DrugPrescriptionCount> findAllForUpdate(@Param("drugIds") Collection<Long> drugIds);
+
+    // One row per drug with prescriptions; names are looked up by primary key.
+    @Query("SELECT d.ingredient_name, SUM(c.total) FROM DrugPrescriptionCount c, Drug d WHERE d.id = c.drugId AND c.total > 0 GROUP BY d.ingredient_name")
+    List<Object[]> sumByIngredientName();
+}
@@ -1,11 +1,27 @@
 package com.atlas.pharmacy.data.service;
 
 import com.atlas.pharmacy.data.entity.Drug;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface DrugRepository extends
         JpaRepository<Drug, Long>,
         JpaSpecificationExecutor<Drug> {
 
+    // A drug code is shared by every active ingredient of the product, so both are needed to identify a row.
+    // Cached, as the same catalogue entries are resolved again for every prescription written against them.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT d FROM Drug d WHERE d.drug_code = :drugCode AND d.ingredient_name = :ingredientName")
+    Optional<Drug> findByCodeAndIngredient(@Param("drugCode") int drugCode, @Param("ingredientName") String ingredientName);
+
+    @Query("SELECT d.drug_code, d.ingredient_name, d.id FROM Drug d")
+    List<Object[]> findIdsByCodeAndIngredient();
 }
@@ -1,52 +1,159 @@
 package com.atlas.pharmacy.data.service;
 
 import com.atlas.pharmacy.data.entity.Drug;
+import com.atlas.pharmacy.data.search.CatalogueDrug;
+import com.atlas.pharmacy.data.search.DrugIndex;
+import com.atlas.pharmacy.data.search.DrugTable;
+import com.atlas.pharmacy.metrics.MetricsConfiguration;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
+@Timed(MetricsConfiguration.SERVICE_TIMER)
 public class DrugService {
 
-    private static final String API_URL = "https://health-products.canada.ca/api/drug/activeingredient/?lang=en&type=json";
-
     private final DrugRepository drugRepository;
+    private final DrugCatalogue drugCatalogue;
+    private final ReferenceDataCache referenceDataCache;
 
-    public DrugService(DrugRepository drugRepository) {
+    public DrugService(DrugRepository drugRepository, DrugCatalogue drugCatalogue,
+                       ReferenceDataCache referenceDataCache) {
         this.drugRepository = drugRepository;
+        this.drugCatalogue = drugCatalogue;
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    public DrugTable fetchDrugs() {
+        return drugCatalogue.getTable();
+    }
+
+    public List<CatalogueDrug> searchDrugs(String query) {
+        return searchDrugs(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Search the catalogue by drug code or ingredient name.
+     *
+     * @param query Drug code or part of an ingredient name, case insensitive.
+     * @param limit Maximum number of results.
+     * @return The best matches, best first.
+     */
+    public List<CatalogueDrug> searchDrugs(String query, int limit) {
+        return drugCatalogue.getIndex().search(query, limit);
     }
 
-    public List<Drug> fetchDrugs() {
-        RestTemplate restTemplate = new RestTemplate();
-        Drug[] drugs = restTemplate.getForObject(API_URL, Drug[].class);
-        return Arrays.asList(drugs);
+
+    /**
+     * Get one page of the drug catalogue, optionally filtered by a search query.
+     * <p>
+     * Without a query the catalogue is paged in its own order or in the requested sort order; with a query
+     * the matches are paged in rank order unless a sort order is requested. Only the first sort order is used.
+     *
+     * @param pageable Page and sort order requested by the grid.
+     * @param query    Drug code or part of an ingredient name, or blank for the whole catalogue.
+     * @return The requested page together with the total number of matching entries.
+     */
+    public Page<CatalogueDrug> listCatalogue(Pageable pageable, String query) {
+        DrugIndex index = drugCatalogue.getIndex();
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(null);
+
+        int[] rows;
+        if (query == null || query.isBlank()) {
+            rows = order == null ? null : index.sortedRows(order.getProperty());
+        } else {
+            rows = index.searchRows(query, Integer.MAX_VALUE);
+            if (order != null) {
+                rows = index.sort(rows, order.getProperty());
+            }
+        }
+
+        int total = rows == null ? index.size() : rows.length;
+        boolean descending = order != null && order.isDescending();
+        int from = (int) Math.min(pageable.getOffset(), total);
+        int to = Math.min(from + pageable.getPageSize(), total);
+        List<CatalogueDrug> content = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            int position = descending ? total - 1 - i : i;
+            content.add(index.get(rows == null ? position : rows[position]));
+        }
+        return new PageImpl<>(content, pageable, total);
     }
 
-    public List<Drug> searchDrugs(String query) {
-        return fetchDrugs().stream()
-                .filter(drug -> String.valueOf(drug.getDrug_code()).contains(query) ||
-                        drug.getIngredient_name().toLowerCase().contains(query.toLowerCase()))
-                .collect(Collectors.toList());
+    /**
+     * Count the catalogue entries matching a search query.
+     *
+     * @param query Drug code or part of an ingredient name, or blank for the whole catalogue.
+     * @return Number of matching entries.
+     */
+    public int countCatalogue(String query) {
+        DrugIndex index = drugCatalogue.getIndex();
+        if (query == null || query.isBlank()) {
+            return index.size();
+        }
+        return index.searchRows(query, Integer.MAX_VALUE).length;
     }
 
+    /**
+     * Get the catalogue entries with a drug code, one per active ingredient.
+     */
+    public List<CatalogueDrug> findCatalogueByCode(int drugCode) {
+        return drugCatalogue.getIndex().findByCode(drugCode);
+    }
+
+    /**
+     * Get the persisted drug for a catalogue entry, storing a copy of the entry on first use.
+     *
+     * @param catalogueDrug Catalogue entry copied with {@link CatalogueDrug#toDrug()}, or a stored drug.
+     * @return The managed drug row.
+     */
+    public Drug resolve(Drug catalogueDrug) {
+        if (catalogueDrug.getId() != null) {
+            return catalogueDrug;
+        }
+        return drugRepository.findByCodeAndIngredient(catalogueDrug.getDrug_code(), catalogueDrug.getIngredient_name())
+                .orElseGet(() -> drugRepository.save(copyOf(catalogueDrug)));
+    }
+
+    /**
+     * Get the persisted drug for a catalogue entry, if it has been stored.
+     */
+    public Optional<Drug> findStored(CatalogueDrug catalogueDrug) {
+        return drugRepository.findByCodeAndIngredient(catalogueDrug.getDrug_code(), catalogueDrug.getIngredient_name());
+    }
+
+    private static Drug copyOf(Drug source) {
+        Drug drug = new Drug();
+        drug.setDrug_code(source.getDrug_code());
+        drug.setIngredient_name(source.getIngredient_name());
+        drug.setDosage_unit(source.getDosage_unit());
+        drug.setDosage_value(source.getDosage_value());
+        drug.setStrength(source.getStrength());
+        drug.setStrength_unit(source.getStrength_unit());
+        return drug;
+    }
 
     public Optional<Drug> get(Long id) {
         return drugRepository.findById(id);
     }
 
     public Drug update(Drug entity) {
-        return drugRepository.save(entity);
+        Drug saved = drugRepository.save(entity);
+        referenceDataCache.evict(Drug.class, saved.getId());
+        return saved;
     }
 
     public void delete(Long id) {
         drugRepository.deleteById(id);
+        referenceDataCache.evict(Drug.class, id);
     }
 
     public Page<Drug> list(Pageable pageable) {
@@ -0,0 +1,7 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.data.entity.ImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, String> {
+}
@@ -0,0 +1,32 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.data.entity.OccupationCount;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OccupationCountRepository extends JpaRepository<OccupationCount, String> {
+
+    @Modifying
+    @Query("UPDATE OccupationCount c SET c.total = c.total + :delta WHERE c.occupation = :occupation")
+    int increment(@Param("occupation") String occupation, @Param("delta") long delta);
+
+    // Never merges, so a counter created concurrently fails the insert instead of being reset
+    @Modifying
+    @Query("INSERT INTO OccupationCount (occupation, total) VALUES (:occupation, 0)")
+    int insertZero(@Param("occupation") String occupation);
+
+    @Query("SELECT c.occupation FROM OccupationCount c WHERE c.occupation IN :occupations")
+    List<String> findExisting(@Param("occupations") Collection<String> occupations);
+
+    // Locked in key order, so concurrent batches touching the same counters cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM OccupationCount c WHERE c.occupation IN :occupations ORDER BY c.occupation")
+    List<OccupationCount> findAllForUpdate(@Param("occupations") Collection<String> occupations);
+}
@@ -0,0 +1,11 @@
+package com.atlas.pharmacy.data.service;
+
+import java.time.LocalDate;
+
+/**
+ * A patient as written by exports.
+ */
+public record PatientExportRow(Long id, String healthCardId, String firstName, String lastName, String email,
+                               String phone, LocalDate dateOfBirth, String occupation, String streetAddress,
+                               String city, String province, String postalCode, String allergy) {
+}
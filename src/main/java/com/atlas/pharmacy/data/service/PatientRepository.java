@@ -1,11 +1,17 @@
 package com.atlas.pharmacy.data.service;
 
 import com.atlas.pharmacy.data.entity.Patient;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface PatientRepository extends
         JpaRepository<Patient, Long>,
@@ -13,4 +19,24 @@ public interface PatientRepository extends
 
     @Query("SELECT p.occupation, COUNT(p) FROM Patient p GROUP BY p.occupation")
     List<Object[]> countPatientsByOccupation();
+
+    /**
+     * Stream every patient over a forward-only cursor, for exports. Must be consumed inside a transaction.
+     * Projections keep the persistence context out of it, see {@link PrescriptionRepository#streamExportRows()}.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.atlas.pharmacy.data.service.PatientExportRow(p.id, p.healthCardId, p.firstName, " +
+            "p.lastName, p.email, p.phone, p.dateOfBirth, p.occupation, p.streetAddress, p.city, p.province, " +
+            "p.postalCode, p.allergy) FROM Patient p ORDER BY p.id")
+    Stream<PatientExportRow> streamExportRows();
+
+    // Streamed, as an import may have to look up every patient by health card
+    @Query("SELECT p.healthCardId, p.id FROM Patient p WHERE p.healthCardId IS NOT NULL")
+    Stream<Object[]> streamIdsByHealthCardId();
+
+    List<Patient> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("SELECT p FROM Patient p WHERE p.id > :id " +
+            "AND NOT EXISTS (SELECT t FROM PatientSearchToken t WHERE t.patientId = p.id) ORDER BY p.id")
+    List<Patient> findUnindexedAfter(@Param("id") Long id, Pageable pageable);
 }
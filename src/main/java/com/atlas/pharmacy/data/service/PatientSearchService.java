@@ -0,0 +1,244 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.data.entity.Patient;
+import com.atlas.pharmacy.data.entity.PatientSearchToken;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Token index over the patients' names, email, health card ID and phone number.
+ * <p>
+ * Every patient is stored as a set of normalized tokens in an indexed table, so a search term is a
+ * prefix range scan on that index instead of a LIKE over every patient row. Phone numbers are indexed
+ * by their digits, with the local number and the last four digits as extra tokens, so a number can be
+ * found without its area code. {@link PatientService} keeps the tokens in sync on update and delete.
+ */
+@Service
+public class PatientSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientSearchService.class);
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PHONE_TERM = Pattern.compile("[0-9()\\-.+]*[0-9][0-9()\\-.+]*");
+    private static final Pattern NON_DIGIT = Pattern.compile("[^0-9]");
+
+    private final PatientSearchTokenRepository tokenRepository;
+    private final PatientRepository patientRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public PatientSearchService(PatientSearchTokenRepository tokenRepository, PatientRepository patientRepository,
+                                TransactionTemplate transactionTemplate) {
+        this.tokenRepository = tokenRepository;
+        this.patientRepository = patientRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Get the patients matching every term of a query.
+     * <p>
+     * A term matches a patient if it is a prefix of one of the patient's tokens. Every term becomes an
+     * {@code id IN (...)} subquery on the token index, so the database intersects the terms, applies any other
+     * criteria the specification is combined with and counts the real total. Unless the page requests a sort
+     * order of its own, patients are ranked by the token matched by the first term, in index order: an exact
+     * token comes before longer tokens sharing the prefix.
+     *
+     * @param query Search terms separated by whitespace.
+     * @return The specification, or null if the query has no terms.
+     */
+    public Specification<Patient> matching(String query) {
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        return (root, criteriaQuery, criteriaBuilder) -> {
+            if (!Long.class.equals(criteriaQuery.getResultType())) {
+                // The lowest token matched by the first term, so exact tokens come before longer ones
+                Subquery<String> rank = criteriaQuery.subquery(String.class);
+                Root<PatientSearchToken> token = rank.from(PatientSearchToken.class);
+                rank.select(criteriaBuilder.least(token.<String>get("token")))
+                        .where(criteriaBuilder.equal(token.get("patientId"), root.get("id")),
+                                criteriaBuilder.like(token.<String>get("token"), prefixPattern(terms.get(0)), '\\'));
+                criteriaQuery.orderBy(criteriaBuilder.asc(rank), criteriaBuilder.asc(root.get("id")));
+            }
+            return matches(terms, root.<Long>get("id"), criteriaQuery, criteriaBuilder);
+        };
+    }
+
+    /**
+     * Restrict a query to rows whose patient matches every term of a search, such as a patient's prescriptions.
+     *
+     * @param query     Search terms separated by whitespace.
+     * @param patientId Patient ID of the rows being restricted.
+     * @return The restriction, or null if the query has no terms.
+     */
+    public Predicate matches(String query, Expression<Long> patientId, CriteriaQuery<?> criteriaQuery,
+                             CriteriaBuilder criteriaBuilder) {
+        List<String> terms = terms(query);
+        return terms.isEmpty() ? null : matches(terms, patientId, criteriaQuery, criteriaBuilder);
+    }
+
+    private static Predicate matches(List<String> terms, Expression<Long> patientId, CriteriaQuery<?> criteriaQuery,
+                                     CriteriaBuilder criteriaBuilder) {
+        List<Predicate> predicates = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            // A prefix range scan on the token index per term
+            Subquery<Long> matching = criteriaQuery.subquery(Long.class);
+            Root<PatientSearchToken> token = matching.from(PatientSearchToken.class);
+            matching.select(token.<Long>get("patientId"))
+                    .where(criteriaBuilder.like(token.<String>get("token"), prefixPattern(term), '\\'));
+            predicates.add(patientId.in(matching));
+        }
+        return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+    }
+
+    /**
+     * Replace the tokens of a saved patient.
+     */
+    @Transactional
+    public void index(Patient patient) {
+        tokenRepository.deleteByPatientId(patient.getId());
+        tokenRepository.saveAll(tokens(patient));
+    }
+
+    /**
+     * Replace the tokens of many saved patients with one delete and batched inserts.
+     */
+    @Transactional
+    public void index(Collection<Patient> patients) {
+        if (patients.isEmpty()) {
+            return;
+        }
+        tokenRepository.deleteByPatientIdIn(patients.stream().map(Patient::getId).toList());
+        List<PatientSearchToken> tokens = new ArrayList<>();
+        patients.forEach(patient -> tokens.addAll(tokens(patient)));
+        tokenRepository.saveAll(tokens);
+    }
+
+    @Transactional
+    public void remove(Long patientId) {
+        tokenRepository.deleteByPatientId(patientId);
+    }
+
+    /**
+     * Index the patients inserted without going through {@link PatientService}, such as the seed data.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexMissing() {
+        int indexed = index(patientRepository::findUnindexedAfter);
+        if (indexed > 0) {
+            log.info("Patient search index added {} patients", indexed);
+        }
+    }
+
+    /**
+     * Re-create the tokens of all patients, one batch per transaction.
+     */
+    public void rebuild() {
+        transactionTemplate.executeWithoutResult(status -> tokenRepository.deleteAllInBatch());
+        int indexed = index(patientRepository::findByIdGreaterThanOrderByIdAsc);
+        log.info("Patient search index rebuilt for {} patients", indexed);
+    }
+
+    private int index(BiFunction<Long, Pageable, List<Patient>> patientsAfter) {
+        long lastId = 0;
+        int indexed = 0;
+        List<Patient> batch;
+        do {
+            long after = lastId;
+            batch = transactionTemplate.execute(status -> {
+                List<Patient> patients = patientsAfter.apply(after, PageRequest.ofSize(REBUILD_BATCH_SIZE));
+                List<PatientSearchToken> tokens = new ArrayList<>();
+                patients.forEach(patient -> tokens.addAll(tokens(patient)));
+                tokenRepository.saveAll(tokens);
+                return patients;
+            });
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+                indexed += batch.size();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+        return indexed;
+    }
+
+    static List<PatientSearchToken> tokens(Patient patient) {
+        return tokens(patient.getFirstName(), patient.getLastName(), patient.getEmail(), patient.getHealthCardId(),
+                patient.getPhone()).stream()
+                .map(token -> new PatientSearchToken(patient.getId(), token))
+                .toList();
+    }
+
+    /**
+     * Get the search tokens of a patient's fields, for loaders that write the token table directly.
+     */
+    public static Set<String> tokens(String firstName, String lastName, String email, String healthCardId, String phone) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addWords(tokens, firstName);
+        addWords(tokens, lastName);
+        addWords(tokens, email);
+        addWords(tokens, healthCardId);
+
+        String digits = digits(phone);
+        if (!digits.isEmpty()) {
+            tokens.add(digits);
+            if (digits.length() > 7) {
+                tokens.add(digits.substring(digits.length() - 7));
+            }
+            if (digits.length() > 4) {
+                tokens.add(digits.substring(digits.length() - 4));
+            }
+        }
+        return tokens;
+    }
+
+    private static void addWords(Set<String> tokens, String value) {
+        if (value != null) {
+            tokens.addAll(terms(value));
+        }
+    }
+
+    private static List<String> terms(String value) {
+        List<String> terms = new ArrayList<>();
+        if (value == null) {
+            return terms;
+        }
+        for (String word : WHITESPACE.split(value.toLowerCase(Locale.ROOT))) {
+            // Phone numbers are typed with punctuation but indexed by their digits
+            String term = PHONE_TERM.matcher(word).matches() ? digits(word) : word;
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private static String digits(String value) {
+        return value == null ? "" : NON_DIGIT.matcher(value).replaceAll("");
+    }
+
+    private static String prefixPattern(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
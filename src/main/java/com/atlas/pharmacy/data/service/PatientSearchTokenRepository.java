@@ -0,0 +1,20 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.data.entity.PatientSearchToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+
+public interface PatientSearchTokenRepository extends JpaRepository<PatientSearchToken, PatientSearchToken.Key> {
+
+    @Modifying
+    @Query("DELETE FROM PatientSearchToken t WHERE t.patientId = :patientId")
+    void deleteByPatientId(@Param("patientId") Long patientId);
+
+    @Modifying
+    @Query("DELETE FROM PatientSearchToken t WHERE t.patientId IN :patientIds")
+    void deleteByPatientIdIn(@Param("patientIds") Collection<Long> patientIds);
+}
@@ -1,58 +1,124 @@
 package com.atlas.pharmacy.data.service;
 
 import com.atlas.pharmacy.data.entity.Patient;
+import com.atlas.pharmacy.metrics.MetricsConfiguration;
+import io.micrometer.core.annotation.Timed;
 
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
+@Timed(MetricsConfiguration.SERVICE_TIMER)
 public class PatientService {
 
     private final PatientRepository repository;
+    private final PatientSearchService searchService;
+    private final StatisticsService statisticsService;
 
-    public PatientService(PatientRepository repository) {
+    public PatientService(PatientRepository repository, PatientSearchService searchService,
+                          StatisticsService statisticsService) {
         this.repository = repository;
+        this.searchService = searchService;
+        this.statisticsService = statisticsService;
     }
 
+    /**
+     * Get the number of patients per occupation from the maintained counters.
+     */
     public Map<String, Long> countPatientsByOccupation() {
-        List<Object[]> results = repository.countPatientsByOccupation();
-        Map<String, Long> patientsByOccupation = new HashMap<>();
-
-        for (Object[] result : results) {
-            String occupation = (String) result[0];
-            Long count = ((Number) result[1]).longValue();
-            patientsByOccupation.put(occupation, count);
-        }
-
-        return patientsByOccupation;
+        return statisticsService.countPatientsByOccupation();
     }
 
+    /**
+     * Get a patient for editing; prescriptions are not loaded.
+     */
     public Optional<Patient> get(Long id) {
         return repository.findById(id);
     }
 
+    @Transactional
     public Patient update(Patient entity) {
-        return repository.save(entity);
+        // Loads the stored row into the persistence context, so the merge below does not select it again
+        Optional<String> before = entity.getId() == null ? Optional.empty()
+                : repository.findById(entity.getId()).map(patient -> Objects.toString(patient.getOccupation(), ""));
+        Patient saved = repository.save(entity);
+        searchService.index(saved);
+        statisticsService.patientOccupationChanged(before.isPresent(), before.orElse(null), true, saved.getOccupation());
+        return saved;
+    }
+
+    /**
+     * Save many patients in one transaction, for imports.
+     * <p>
+     * The stored state of existing patients is read in one select, the rows are written in JDBC batches and
+     * the search tokens and counters are adjusted once for the whole collection. Every saved patient stays in
+     * the persistence context until the transaction ends, so large imports should be passed in chunks.
+     *
+     * @return The saved patients, in the order given.
+     */
+    @Transactional
+    public List<Patient> saveAll(Collection<Patient> entities) {
+        List<Long> ids = entities.stream().map(Patient::getId).filter(Objects::nonNull).toList();
+        List<String> before = repository.findAllById(ids).stream().map(Patient::getOccupation).toList();
+        List<Patient> saved = repository.saveAll(entities);
+        searchService.index(saved);
+        statisticsService.patientOccupationsChanged(before, saved.stream().map(Patient::getOccupation).toList());
+        return saved;
     }
 
+    @Transactional
     public void delete(Long id) {
-        repository.deleteById(id);
+        repository.findById(id).ifPresent(patient -> {
+            searchService.remove(id);
+            statisticsService.patientOccupationChanged(true, patient.getOccupation(), false, null);
+            repository.delete(patient);
+        });
     }
 
     public Page<Patient> list(Pageable pageable) {
         return repository.findAll(pageable);
     }
 
+    /**
+     * Get a page of grid rows; prescriptions are not loaded, so a page costs a single select.
+     */
     public Page<Patient> list(Pageable pageable, Specification<Patient> filter) {
         return repository.findAll(filter, pageable);
     }
 
+    /**
+     * Get a page of grid rows matching a text search and an optional filter.
+     * <p>
+     * The search terms, the filter and the page are one query, so every match is found and the total is
+     * exact. Without a sort order the best matches come first.
+     *
+     * @param searchText Name, email, health card or phone search terms; blank to only apply the filter.
+     * @param filter     Remaining criteria, or null if there are none.
+     */
+    public Page<Patient> list(Pageable pageable, String searchText, Specification<Patient> filter) {
+        if (searchText == null || searchText.isBlank()) {
+            return filter == null ? repository.findAll(pageable) : repository.findAll(filter, pageable);
+        }
+
+        Specification<Patient> matching = searchService.matching(searchText);
+        if (matching == null) {
+            return filter == null ? repository.findAll(pageable) : repository.findAll(filter, pageable);
+        }
+        return repository.findAll(filter == null ? matching : matching.and(filter), pageable);
+    }
+
+    /**
+     * Load the whole table; exports and reports stream it through
+     * {@link com.atlas.pharmacy.data.export.ExportService} instead.
+     */
     public List<Patient> findAll() {
         return repository.findAll();
     }
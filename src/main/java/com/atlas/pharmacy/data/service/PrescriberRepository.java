@@ -1,10 +1,24 @@
 package com.atlas.pharmacy.data.service;
 
 import com.atlas.pharmacy.data.entity.Prescriber;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.List;
 
 public interface PrescriberRepository extends
         JpaRepository<Prescriber, Long>,
         JpaSpecificationExecutor<Prescriber> {
+
+    // Read every time a prescription dialog opens; cached until a prescriber changes here, or for a minute.
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Prescriber> findAll();
+
+    @Query("SELECT p.licenseIdentificationNumber, p.id FROM Prescriber p")
+    List<Object[]> findIdsByLicenseNumber();
 }
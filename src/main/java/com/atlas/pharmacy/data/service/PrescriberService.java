@@ -1,21 +1,27 @@
 package com.atlas.pharmacy.data.service;
 
 import com.atlas.pharmacy.data.entity.Prescriber;
+import com.atlas.pharmacy.metrics.MetricsConfiguration;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Service
+@Timed(MetricsConfiguration.SERVICE_TIMER)
 public class PrescriberService {
 
     private final PrescriberRepository repository;
+    private final ReferenceDataCache referenceDataCache;
 
-    public PrescriberService(PrescriberRepository repository) {
+    public PrescriberService(PrescriberRepository repository, ReferenceDataCache referenceDataCache) {
         this.repository = repository;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public Optional<Prescriber> get(Long id) {
@@ -23,11 +29,21 @@ public class PrescriberService {
     }
 
     public Prescriber update(Prescriber entity) {
-        return repository.save(entity);
+        Prescriber saved = repository.save(entity);
+        referenceDataCache.evict(Prescriber.class, saved.getId());
+        return saved;
+    }
+
+    /**
+     * Save many prescribers in JDBC batches, for imports.
+     */
+    public List<Prescriber> saveAll(Collection<Prescriber> entities) {
+        return repository.saveAll(entities);
     }
 
     public void delete(Long id) {
         repository.deleteById(id);
+        referenceDataCache.evict(Prescriber.class, id);
     }
 
     public Page<Prescriber> list(Pageable pageable) {
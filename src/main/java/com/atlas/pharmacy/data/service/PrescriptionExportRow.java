@@ -0,0 +1,11 @@
+package com.atlas.pharmacy.data.service;
+
+import java.time.LocalDate;
+
+/**
+ * A prescription as written by exports, with the natural keys of its patient, prescriber and drug.
+ */
+public record PrescriptionExportRow(Long id, String healthCardId, Long licenseIdentificationNumber, Integer drugCode,
+                                    String ingredientName, LocalDate dispenseDate, String frequency, double quantity,
+                                    int refills, int daySupplyDuration, LocalDate nextRefillDate) {
+}
@@ -1,24 +1,47 @@
 package com.atlas.pharmacy.data.service;
 
 import com.atlas.pharmacy.data.entity.Prescription;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface PrescriptionRepository extends
         JpaRepository<Prescription, Long>,
         JpaSpecificationExecutor<Prescription> {
 
-    // The query selects prescriptions where the patient's full name (concatenated first name and last name)
-    // contains the search string, ignoring the case.
-    @Query("SELECT p FROM Prescription p WHERE LOWER(CONCAT(p.patient.firstName, ' ', p.patient.lastName)) LIKE LOWER(CONCAT('%', :searchString, '%'))")
-    Page<Prescription> findByPatientNameContainingIgnoreCase(@Param("searchString") String searchString, Pageable pageable);
+    // Served by the (patient_id, dispense_date) index; drug and prescriber come in the same select.
+    @Query(value = "SELECT p FROM Prescription p JOIN FETCH p.patient LEFT JOIN FETCH p.drug LEFT JOIN FETCH p.prescriber WHERE p.patient.id = :patientId",
+            countQuery = "SELECT COUNT(p) FROM Prescription p WHERE p.patient.id = :patientId")
+    Page<Prescription> findByPatientId(@Param("patientId") Long patientId, Pageable pageable);
 
-    @Query("SELECT p.drug.ingredient_name, COUNT(p) FROM Prescription p GROUP BY p.drug.ingredient_name")
-    List<Object[]> countPrescriptionsByDrug();
+    /**
+     * Stream every prescription over a forward-only cursor, for exports. Must be consumed inside a transaction.
+     * Rows are read as projections rather than entities: Hibernate keeps a key for every entity read from a
+     * stream until it is closed, even across clears, which would grow with the table.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.atlas.pharmacy.data.service.PrescriptionExportRow(p.id, pt.healthCardId, " +
+            "pr.licenseIdentificationNumber, d.drug_code, d.ingredient_name, p.dispenseDate, p.frequency, p.quantity, " +
+            "p.refills, p.daySupplyDuration, p.nextRefillDate) " +
+            "FROM Prescription p LEFT JOIN p.patient pt LEFT JOIN p.prescriber pr LEFT JOIN p.drug d ORDER BY p.id")
+    Stream<PrescriptionExportRow> streamExportRows();
+
+    @Query("SELECT p.drug.id, COUNT(p) FROM Prescription p WHERE p.drug IS NOT NULL GROUP BY p.drug.id")
+    List<Object[]> countPrescriptionsByDrugId();
+
+    @Query("SELECT p.dispenseDate, COUNT(p) FROM Prescription p WHERE p.dispenseDate >= :from GROUP BY p.dispenseDate")
+    List<Object[]> countDispensedSince(@Param("from") LocalDate from);
+
+    @Query("SELECT COUNT(p) FROM Prescription p WHERE p.nextRefillDate = :day")
+    long countRefillsDueOn(@Param("day") LocalDate day);
 }
@@ -1,49 +1,82 @@
 package com.atlas.pharmacy.data.service;
 
+import com.atlas.pharmacy.data.entity.Drug;
 import com.atlas.pharmacy.data.entity.Prescription;
+import com.atlas.pharmacy.metrics.MetricsConfiguration;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.criteria.JoinType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
+@Timed(MetricsConfiguration.SERVICE_TIMER)
 public class PrescriptionService {
 
     private final PrescriptionRepository repository;
+    private final PatientSearchService patientSearchService;
+    private final StatisticsService statisticsService;
 
-    public PrescriptionService(PrescriptionRepository repository) {
+    public PrescriptionService(PrescriptionRepository repository, PatientSearchService patientSearchService,
+                               StatisticsService statisticsService) {
         this.repository = repository;
+        this.patientSearchService = patientSearchService;
+        this.statisticsService = statisticsService;
     }
 
+    /**
+     * Get the number of prescriptions per drug from the maintained counters.
+     */
     public Map<String, Long> countPrescriptionsByDrug() {
-        List<Object[]> results = repository.countPrescriptionsByDrug();
-        Map<String, Long> prescriptionsByDrug = new HashMap<>();
-
-        for (Object[] result : results) {
-            String drugName = (String) result[0];
-            Long count = ((Number) result[1]).longValue();
-            prescriptionsByDrug.put(drugName, count);
-        }
-
-        return prescriptionsByDrug;
+        return statisticsService.countPrescriptionsByDrug();
     }
 
     public Optional<Prescription> get(Long id) {
         return repository.findById(id);
     }
 
+    @Transactional
     public Prescription update(Prescription entity) {
-        return repository.save(entity);
+        // Loads the stored row into the persistence context, so the merge below does not select it again
+        Drug before = entity.getId() == null ? null : repository.findById(entity.getId()).map(Prescription::getDrug).orElse(null);
+        Prescription saved = repository.save(entity);
+        statisticsService.prescriptionDrugChanged(before, saved.getDrug());
+        return saved;
     }
 
+    /**
+     * Save many prescriptions in one transaction, for imports.
+     * <p>
+     * The stored drugs of existing prescriptions are read in one select, the rows are written in JDBC batches
+     * and the counters are adjusted once per drug. Large imports should be passed in chunks, as every saved
+     * prescription stays in the persistence context until the transaction ends.
+     *
+     * @return The saved prescriptions, in the order given.
+     */
+    @Transactional
+    public List<Prescription> saveAll(Collection<Prescription> entities) {
+        List<Long> ids = entities.stream().map(Prescription::getId).filter(Objects::nonNull).toList();
+        List<Drug> before = repository.findAllById(ids).stream().map(Prescription::getDrug).toList();
+        List<Prescription> saved = repository.saveAll(entities);
+        statisticsService.prescriptionDrugsChanged(before, saved.stream().map(Prescription::getDrug).toList());
+        return saved;
+    }
+
+    @Transactional
     public void delete(Long id) {
-        repository.deleteById(id);
+        repository.findById(id).ifPresent(prescription -> {
+            statisticsService.prescriptionDrugChanged(prescription.getDrug(), null);
+            repository.delete(prescription);
+        });
     }
 
     public Page<Prescription> list(Pageable pageable) {
@@ -54,14 +87,38 @@ public class PrescriptionService {
         return repository.findAll(filter, pageable);
     }
 
+    /**
+     * Get a page of prescriptions whose patient matches a search in the patient search index.
+     * <p>
+     * The search terms are subqueries on the token index within the prescription query, so no list of
+     * matching patients is built and none is left out. Patient, drug and prescriber are fetched in the same
+     * select; the count query joins nothing.
+     *
+     * @param searchString Patient name, email, health card or phone search terms; empty for all prescriptions.
+     */
     public Page<Prescription> list(Pageable pageable, String searchString) {
-        if (searchString.isEmpty()) {
+        if (searchString.isBlank()) {
             return repository.findAll(pageable);
-        } else {
-            return repository.findByPatientNameContainingIgnoreCase(searchString, pageable);
         }
+        Specification<Prescription> matching = (root, query, criteriaBuilder) -> {
+            if (!Long.class.equals(query.getResultType())) {
+                root.fetch("patient");
+                root.fetch("drug", JoinType.LEFT);
+                root.fetch("prescriber", JoinType.LEFT);
+            }
+            return patientSearchService.matches(searchString, root.get("patient").<Long>get("id"), query, criteriaBuilder);
+        };
+        return repository.findAll(matching, pageable);
+    }
+
+    public Page<Prescription> listForPatient(Long patientId, Pageable pageable) {
+        return repository.findByPatientId(patientId, pageable);
     }
 
+    /**
+     * Load the whole table; exports and reports stream it through
+     * {@link com.atlas.pharmacy.data.export.ExportService} instead.
+     */
     public List<Prescription> findAll() {
         return repository.findAll();
     }
@@ -0,0 +1,27 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.data.entity.ProfilePicture;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ProfilePictureRepository extends JpaRepository<ProfilePicture, Long> {
+
+    @Query("SELECT p.version FROM ProfilePicture p WHERE p.userId = :userId")
+    Optional<Integer> findVersionByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT p.thumbnailSmall FROM ProfilePicture p WHERE p.userId = :userId")
+    Optional<byte[]> findSmallThumbnailByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT p.thumbnailMedium FROM ProfilePicture p WHERE p.userId = :userId")
+    Optional<byte[]> findMediumThumbnailByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT p.thumbnailLarge FROM ProfilePicture p WHERE p.userId = :userId")
+    Optional<byte[]> findLargeThumbnailByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT p.userId FROM ProfilePicture p WHERE p.thumbnailLarge IS NULL")
+    List<Long> findUserIdsWithoutThumbnails();
+}
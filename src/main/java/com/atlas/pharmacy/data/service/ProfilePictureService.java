@@ -0,0 +1,192 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.data.entity.ProfilePicture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Profile pictures and their square thumbnails, for avatars.
+ * <p>
+ * Thumbnails come in a few fixed sizes so clients and proxies can cache them; a requested size is rounded up
+ * to the nearest one. They are computed once, when a picture is stored, so serving an avatar reads a few
+ * kilobytes. The original is only ever streamed, never held in memory to be served.
+ */
+@Service
+public class ProfilePictureService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfilePictureService.class);
+
+    public static final int SMALL = 32;
+    public static final int MEDIUM = 64;
+    public static final int LARGE = 128;
+
+    private final ProfilePictureRepository repository;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+
+    public ProfilePictureService(ProfilePictureRepository repository, JdbcTemplate jdbc,
+                                 TransactionTemplate transactionTemplate) {
+        this.repository = repository;
+        this.jdbc = jdbc;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Round a requested thumbnail size to one of the sizes served.
+     *
+     * @param requested Edge length in pixels.
+     * @return The smallest served size at least as large, or the largest served size.
+     */
+    public static int thumbnailSize(int requested) {
+        if (requested <= SMALL) {
+            return SMALL;
+        }
+        return requested <= MEDIUM ? MEDIUM : LARGE;
+    }
+
+    /**
+     * Get the version of a user's picture, which changes whenever the picture does.
+     *
+     * @param userId User identifier.
+     * @return The version, or empty if the user has no picture.
+     */
+    public Optional<Integer> getVersion(Long userId) {
+        return repository.findVersionByUserId(userId);
+    }
+
+    /**
+     * Get a precomputed thumbnail of a user's picture.
+     *
+     * @param userId User identifier.
+     * @param size   Edge length in pixels, one of the sizes returned by {@link #thumbnailSize(int)}.
+     * @return The PNG thumbnail, or empty if the user has no readable picture.
+     */
+    public Optional<byte[]> getThumbnail(Long userId, int size) {
+        return switch (thumbnailSize(size)) {
+            case SMALL -> repository.findSmallThumbnailByUserId(userId);
+            case MEDIUM -> repository.findMediumThumbnailByUserId(userId);
+            default -> repository.findLargeThumbnailByUserId(userId);
+        };
+    }
+
+    /**
+     * Copy a user's original picture to a stream, a buffer at a time, straight from the result set.
+     *
+     * @param userId User identifier.
+     * @param out    Destination; not closed.
+     * @return False if the user has no picture, in which case nothing was written.
+     */
+    public boolean writeOriginal(Long userId, OutputStream out) {
+        Boolean found = jdbc.query("select original from profile_picture where user_id = ?", rs -> {
+            if (!rs.next()) {
+                return false;
+            }
+            try (InputStream in = rs.getBinaryStream(1)) {
+                if (in == null) {
+                    return false;
+                }
+                in.transferTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }, userId);
+        return Boolean.TRUE.equals(found);
+    }
+
+    /**
+     * Store a user's picture together with its thumbnails, replacing any previous one.
+     *
+     * @param userId  User identifier.
+     * @param picture Encoded image.
+     */
+    @Transactional
+    public void save(Long userId, byte[] picture) {
+        ProfilePicture profilePicture = repository.findById(userId).orElseGet(() -> new ProfilePicture(userId));
+        profilePicture.setOriginal(picture);
+        setThumbnails(profilePicture);
+        repository.save(profilePicture);
+    }
+
+    @Transactional
+    public void delete(Long userId) {
+        repository.findById(userId).ifPresent(repository::delete);
+    }
+
+    /**
+     * Compute the thumbnails of pictures inserted without going through {@link #save}, such as the seed data.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void thumbnailMissing() {
+        List<Long> userIds = repository.findUserIdsWithoutThumbnails();
+        for (Long userId : userIds) {
+            transactionTemplate.executeWithoutResult(status ->
+                    repository.findById(userId).ifPresent(this::setThumbnails));
+        }
+        if (!userIds.isEmpty()) {
+            log.info("Computed thumbnails for {} profile pictures", userIds.size());
+        }
+    }
+
+    private void setThumbnails(ProfilePicture profilePicture) {
+        BufferedImage source = read(profilePicture.getOriginal());
+        if (source == null) {
+            log.warn("Profile picture of user {} is not a readable image", profilePicture.getUserId());
+            return;
+        }
+        profilePicture.setThumbnailSmall(thumbnail(source, SMALL));
+        profilePicture.setThumbnailMedium(thumbnail(source, MEDIUM));
+        profilePicture.setThumbnailLarge(thumbnail(source, LARGE));
+    }
+
+    private static BufferedImage read(byte[] picture) {
+        try {
+            return picture == null ? null : ImageIO.read(new ByteArrayInputStream(picture));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static byte[] thumbnail(BufferedImage source, int size) {
+        int edge = Math.min(source.getWidth(), source.getHeight());
+        int x = (source.getWidth() - edge) / 2;
+        int y = (source.getHeight() - edge) / 2;
+
+        BufferedImage thumbnail = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, size, size, x, y, x + edge, y + edge, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(thumbnail, "png", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.atlas.pharmacy.data.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Eviction for the second-level cache regions holding prescribers and drugs.
+ * <p>
+ * Hibernate keeps the regions in step with writes it makes itself on this replica. Services still evict
+ * explicitly after their own writes have committed, and anything that writes around Hibernate, such as a
+ * JDBC bulk load, must evict everything once it is done. Writes made on the other replica only become
+ * visible here once the entries expire; the time to live of each region is set in application.conf. Users are
+ * deliberately not cached, so that sign-in never sees a password or role another replica has changed.
+ */
+@Component
+public class ReferenceDataCache {
+
+    private final Cache cache;
+
+    public ReferenceDataCache(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    /**
+     * Evict one entity and every cached query result, so the next read of either goes to the database.
+     *
+     * @param entityClass Cached entity type.
+     * @param id          Identifier of the changed or deleted row, or null to evict every row of the type.
+     */
+    public void evict(Class<?> entityClass, Long id) {
+        if (id == null) {
+            cache.evictEntityData(entityClass);
+        } else {
+            cache.evictEntityData(entityClass, id);
+        }
+        cache.evictQueryRegions();
+    }
+
+    /**
+     * Evict every region, after rows were written without going through Hibernate.
+     */
+    public void evictAll() {
+        cache.evictAllRegions();
+    }
+}
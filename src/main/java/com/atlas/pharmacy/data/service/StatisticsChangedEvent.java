@@ -0,0 +1,7 @@
+package com.atlas.pharmacy.data.service;
+
+/**
+ * Published when a save or delete may have changed the statistics; listeners decide when to recompute.
+ */
+public record StatisticsChangedEvent() {
+}
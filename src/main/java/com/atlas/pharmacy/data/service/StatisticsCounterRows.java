@@ -0,0 +1,47 @@
+package com.atlas.pharmacy.data.service;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Creates missing counter rows for {@link StatisticsService}, each in its own short transaction.
+ * <p>
+ * A counter row is created at zero and committed before the caller adds to it. Two transactions counting the
+ * first patient of an occupation or the first prescription of a drug then race only on this insert: the
+ * loser's insert fails in its own transaction, which is rolled back on its own, and both go on to update the
+ * committed row. Creating the row inside the caller's transaction instead would roll back the caller's save.
+ */
+@Component
+public class StatisticsCounterRows {
+
+    private final OccupationCountRepository occupationCountRepository;
+    private final DrugPrescriptionCountRepository drugPrescriptionCountRepository;
+
+    public StatisticsCounterRows(OccupationCountRepository occupationCountRepository,
+                                 DrugPrescriptionCountRepository drugPrescriptionCountRepository) {
+        this.occupationCountRepository = occupationCountRepository;
+        this.drugPrescriptionCountRepository = drugPrescriptionCountRepository;
+    }
+
+    /**
+     * Create the counter of an occupation unless it exists; the row is committed on return.
+     *
+     * @throws DataIntegrityViolationException If another transaction created it first; the row then exists.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void createOccupation(String occupation) {
+        occupationCountRepository.insertZero(occupation);
+    }
+
+    /**
+     * Create the counter of a drug unless it exists; the row is committed on return.
+     *
+     * @throws DataIntegrityViolationException If another transaction created it first; the row then exists.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void createDrug(Long drugId) {
+        drugPrescriptionCountRepository.insertZero(drugId);
+    }
+}
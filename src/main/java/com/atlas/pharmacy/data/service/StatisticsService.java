@@ -0,0 +1,247 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.data.entity.Drug;
+import com.atlas.pharmacy.data.entity.DrugPrescriptionCount;
+import com.atlas.pharmacy.data.entity.OccupationCount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Aggregate counters for the dashboard.
+ * <p>
+ * Patients per occupation and prescriptions per drug are kept in counter tables that are adjusted in the
+ * same transaction as the save or delete they count, so reading them costs one row per group instead
+ * of a GROUP BY over the whole table. A counter table that is still empty at startup, as after the
+ * schema was created and seeded without going through the services, is filled from the data once;
+ * counters that exist are never recomputed, since another replica may be adjusting them.
+ * <p>
+ * Counters are only ever updated here. A missing counter row is first created and committed at zero by
+ * {@link StatisticsCounterRows}, so concurrent saves never both insert the same row.
+ */
+@Service
+public class StatisticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatisticsService.class);
+
+    private final OccupationCountRepository occupationCountRepository;
+    private final DrugPrescriptionCountRepository drugPrescriptionCountRepository;
+    private final PatientRepository patientRepository;
+    private final PrescriptionRepository prescriptionRepository;
+    private final StatisticsCounterRows counterRows;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public StatisticsService(OccupationCountRepository occupationCountRepository,
+                             DrugPrescriptionCountRepository drugPrescriptionCountRepository,
+                             PatientRepository patientRepository,
+                             PrescriptionRepository prescriptionRepository,
+                             StatisticsCounterRows counterRows,
+                             ApplicationEventPublisher eventPublisher) {
+        this.occupationCountRepository = occupationCountRepository;
+        this.drugPrescriptionCountRepository = drugPrescriptionCountRepository;
+        this.patientRepository = patientRepository;
+        this.prescriptionRepository = prescriptionRepository;
+        this.counterRows = counterRows;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Take all dashboard figures for a day.
+     *
+     * @param day      The day refills are due and the last day of the dispensed series.
+     * @param days     Length of the dispensed series.
+     * @param topDrugs Maximum number of drugs to return.
+     */
+    @Transactional(readOnly = true)
+    public StatisticsSnapshot snapshot(LocalDate day, int days, int topDrugs) {
+        LocalDate from = day.minusDays(days - 1L);
+        Map<LocalDate, Long> dispensedPerDay = new TreeMap<>();
+        for (LocalDate date = from; !date.isAfter(day); date = date.plusDays(1)) {
+            dispensedPerDay.put(date, 0L);
+        }
+        for (Object[] result : prescriptionRepository.countDispensedSince(from)) {
+            // Future-dated prescriptions are not part of the series
+            dispensedPerDay.computeIfPresent((LocalDate) result[0], (date, zero) -> ((Number) result[1]).longValue());
+        }
+
+        Map<String, Long> drugs = new LinkedHashMap<>();
+        countPrescriptionsByDrug().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(topDrugs)
+                .forEach(entry -> drugs.put(entry.getKey(), entry.getValue()));
+
+        return new StatisticsSnapshot(day, dispensedPerDay, prescriptionRepository.countRefillsDueOn(day),
+                drugs, countPatientsByOccupation(), LocalDateTime.now());
+    }
+
+    /**
+     * Get the number of patients per occupation; patients without an occupation are under a null key.
+     */
+    public Map<String, Long> countPatientsByOccupation() {
+        Map<String, Long> patientsByOccupation = new HashMap<>();
+        for (OccupationCount count : occupationCountRepository.findAll()) {
+            if (count.getTotal() > 0) {
+                patientsByOccupation.put(count.getOccupation().isEmpty() ? null : count.getOccupation(), count.getTotal());
+            }
+        }
+        return patientsByOccupation;
+    }
+
+    /**
+     * Get the number of prescriptions per drug ingredient name.
+     */
+    public Map<String, Long> countPrescriptionsByDrug() {
+        Map<String, Long> prescriptionsByDrug = new HashMap<>();
+        for (Object[] result : drugPrescriptionCountRepository.sumByIngredientName()) {
+            prescriptionsByDrug.put((String) result[0], ((Number) result[1]).longValue());
+        }
+        return prescriptionsByDrug;
+    }
+
+    /**
+     * Record a patient save or delete; either side may be absent for an insert or delete.
+     * <p>
+     * The patient moves between occupations if the occupation changed.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void patientOccupationChanged(boolean existed, String before, boolean exists, String after) {
+        patientOccupationsChanged(existed ? List.of(key(before)) : List.of(), exists ? List.of(key(after)) : List.of());
+    }
+
+    /**
+     * Record a batch of patient saves and deletes as one adjustment per occupation.
+     *
+     * @param before Stored occupations of the patients that existed, nulls included.
+     * @param after  Occupations of the patients that exist afterwards, nulls included.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void patientOccupationsChanged(Collection<String> before, Collection<String> after) {
+        eventPublisher.publishEvent(new StatisticsChangedEvent());
+        Map<String, Long> deltas = new HashMap<>();
+        before.forEach(occupation -> deltas.merge(key(occupation), -1L, Long::sum));
+        after.forEach(occupation -> deltas.merge(key(occupation), 1L, Long::sum));
+        // A patient that kept its occupation cancels out
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.size() == 1) {
+            deltas.forEach(this::incrementOccupation);
+        } else if (!deltas.isEmpty()) {
+            // Create missing counters before locking any, so the locks are still taken in key order
+            List<String> existing = occupationCountRepository.findExisting(deltas.keySet());
+            deltas.keySet().stream().filter(occupation -> !existing.contains(occupation))
+                    .forEach(occupation -> createCounter(() -> counterRows.createOccupation(occupation)));
+            for (OccupationCount count : occupationCountRepository.findAllForUpdate(deltas.keySet())) {
+                count.add(deltas.get(count.getOccupation()));
+            }
+        }
+    }
+
+    /**
+     * Record a prescription save or delete; either drug may be null for an insert, delete or missing drug.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void prescriptionDrugChanged(Drug before, Drug after) {
+        prescriptionDrugsChanged(Collections.singletonList(before), Collections.singletonList(after));
+    }
+
+    /**
+     * Record a batch of prescription saves and deletes as one adjustment per drug; null drugs are ignored.
+     *
+     * @param before Stored drugs of the prescriptions that existed.
+     * @param after  Drugs of the prescriptions that exist afterwards.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void prescriptionDrugsChanged(Collection<Drug> before, Collection<Drug> after) {
+        eventPublisher.publishEvent(new StatisticsChangedEvent());
+        Map<Long, Long> deltas = new HashMap<>();
+        drugIds(before).forEach(drugId -> deltas.merge(drugId, -1L, Long::sum));
+        drugIds(after).forEach(drugId -> deltas.merge(drugId, 1L, Long::sum));
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.size() == 1) {
+            deltas.forEach(this::incrementDrug);
+        } else if (!deltas.isEmpty()) {
+            List<Long> existing = drugPrescriptionCountRepository.findExisting(deltas.keySet());
+            deltas.keySet().stream().filter(drugId -> !existing.contains(drugId))
+                    .forEach(drugId -> createCounter(() -> counterRows.createDrug(drugId)));
+            // One locking select and one batched update instead of an update statement per counter,
+            // each of which would flush the persistence context first
+            for (DrugPrescriptionCount count : drugPrescriptionCountRepository.findAllForUpdate(deltas.keySet())) {
+                count.add(deltas.get(count.getDrugId()));
+            }
+        }
+    }
+
+    /**
+     * Fill each counter table that is empty from the patient and prescription tables.
+     * <p>
+     * A table only stays empty until the first counted save, so this scans the data once per database. Rows
+     * are added through the same create-then-increment path as saves, so a save counted meanwhile cannot
+     * make the fill fail; it is counted twice if it committed between the scan and the increment.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void fillEmptyCounters() {
+        if (occupationCountRepository.count() == 0) {
+            List<Object[]> occupations = patientRepository.countPatientsByOccupation();
+            for (Object[] result : occupations) {
+                incrementOccupation((String) result[0], ((Number) result[1]).longValue());
+            }
+            log.info("Occupation counters filled for {} occupations", occupations.size());
+        }
+        if (drugPrescriptionCountRepository.count() == 0) {
+            List<Object[]> drugs = prescriptionRepository.countPrescriptionsByDrugId();
+            for (Object[] result : drugs) {
+                incrementDrug((Long) result[0], ((Number) result[1]).longValue());
+            }
+            log.info("Drug prescription counters filled for {} drugs", drugs.size());
+        }
+    }
+
+    private void incrementOccupation(String occupation, long delta) {
+        // The update locks an existing counter row; only the first patient of an occupation creates one
+        if (occupationCountRepository.increment(key(occupation), delta) == 0) {
+            createCounter(() -> counterRows.createOccupation(key(occupation)));
+            occupationCountRepository.increment(key(occupation), delta);
+        }
+    }
+
+    private void incrementDrug(Long drugId, long delta) {
+        if (drugPrescriptionCountRepository.increment(drugId, delta) == 0) {
+            createCounter(() -> counterRows.createDrug(drugId));
+            drugPrescriptionCountRepository.increment(drugId, delta);
+        }
+    }
+
+    private static void createCounter(Runnable create) {
+        try {
+            create.run();
+        } catch (DataIntegrityViolationException e) {
+            // Created by a concurrent transaction, which has committed it by now
+        }
+    }
+
+    private static Stream<Long> drugIds(Collection<Drug> drugs) {
+        return drugs.stream().filter(Objects::nonNull).map(Drug::getId).filter(Objects::nonNull);
+    }
+
+    private static String key(String occupation) {
+        return occupation == null ? "" : occupation;
+    }
+}
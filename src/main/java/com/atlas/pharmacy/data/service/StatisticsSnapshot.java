@@ -0,0 +1,21 @@
+package com.atlas.pharmacy.data.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Dashboard figures taken together, so every dashboard shows the same moment.
+ *
+ * @param dispensedPerDay      Prescriptions dispensed per day over the last days, oldest first, including empty days.
+ * @param refillsDue           Prescriptions whose next refill falls on {@code day}.
+ * @param topDrugs             Most prescribed drug ingredients, most prescribed first.
+ * @param patientsByOccupation Patients per occupation; patients without an occupation are under a null key.
+ */
+public record StatisticsSnapshot(LocalDate day,
+                                 Map<LocalDate, Long> dispensedPerDay,
+                                 long refillsDue,
+                                 Map<String, Long> topDrugs,
+                                 Map<String, Long> patientsByOccupation,
+                                 LocalDateTime takenAt) {
+}
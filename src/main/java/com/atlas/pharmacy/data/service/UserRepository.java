@@ -3,8 +3,18 @@ package com.atlas.pharmacy.data.service;
 import com.atlas.pharmacy.data.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
 
+    // Not cached: a changed password or role must take effect on every replica at the next sign-in.
     User findByUsername(String username);
+
+    // Joins the picture for its version only; no image column is read.
+    @Query("SELECT new com.atlas.pharmacy.data.service.UserSummary(u.id, u.username, u.name, p.version) " +
+            "FROM User u LEFT JOIN ProfilePicture p ON p.userId = u.id WHERE u.username = :username")
+    Optional<UserSummary> findSummaryByUsername(@Param("username") String username);
 }
@@ -1,19 +1,27 @@
 package com.atlas.pharmacy.data.service;
 
 import com.atlas.pharmacy.data.entity.User;
+import com.atlas.pharmacy.metrics.MetricsConfiguration;
+import io.micrometer.core.annotation.Timed;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.stereotype.Service;
 
 @Service
+@Timed(MetricsConfiguration.SERVICE_TIMER)
 public class UserService {
 
     private final UserRepository repository;
+    private final ProfilePictureService profilePictureService;
+    private final UserCache userCache;
 
-    public UserService(UserRepository repository) {
+    public UserService(UserRepository repository, ProfilePictureService profilePictureService, UserCache userCache) {
         this.repository = repository;
+        this.profilePictureService = profilePictureService;
+        this.userCache = userCache;
     }
 
     public Optional<User> get(Long id) {
@@ -21,11 +29,18 @@ public class UserService {
     }
 
     public User update(User entity) {
-        return repository.save(entity);
+        User saved = repository.save(entity);
+        userCache.removeUserFromCache(saved.getUsername());
+        return saved;
     }
 
     public void delete(Long id) {
+        String username = repository.findById(id).map(User::getUsername).orElse(null);
+        profilePictureService.delete(id);
         repository.deleteById(id);
+        if (username != null) {
+            userCache.removeUserFromCache(username);
+        }
     }
 
     public Page<User> list(Pageable pageable) {
@@ -0,0 +1,13 @@
+package com.atlas.pharmacy.data.service;
+
+import java.io.Serializable;
+
+/**
+ * What the layout needs to know about the signed-in user, without the profile picture bytes.
+ * Kept in the session, so it is serializable.
+ *
+ * @param pictureVersion Version of the profile picture, or null if the user has none.
+ */
+public record UserSummary(Long id, String username, String name, Integer pictureVersion)
+        implements Serializable {
+}
@@ -0,0 +1,80 @@
+package com.atlas.pharmacy.metrics;
+
+import com.vaadin.flow.data.provider.CallbackDataProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Timers for the lazy data providers of the views' grids, tagged by view and grid. Each call also labels
+ * the request with the view, for the {@link QueryInspector}.
+ * <p>
+ * A fetch is timed until its page has been read in full, so the time includes the queries of the service
+ * it calls. Counts are timed separately, as they often cost as much as the page itself.
+ */
+@Component
+public class DataProviderMetrics {
+
+    private static final String TIMER = "atlas.view.fetch";
+
+    private final MeterRegistry registry;
+
+    public DataProviderMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Time every page fetched by a callback.
+     *
+     * @param view     View name, such as {@code patient}.
+     * @param grid     Grid within the view.
+     * @param callback Fetch callback to time.
+     * @return The timed callback.
+     */
+    public <T> CallbackDataProvider.FetchCallback<T, Void> fetch(String view, String grid,
+                                                              CallbackDataProvider.FetchCallback<T, Void> callback) {
+        Timer timer = timer(view, grid, "fetch");
+        return query -> {
+            QueryInspector.label(view);
+            Timer.Sample sample = Timer.start(registry);
+            try (Stream<T> page = callback.fetch(query)) {
+                List<T> items = page.toList();
+                return items.stream();
+            } finally {
+                sample.stop(timer);
+            }
+        };
+    }
+
+    /**
+     * Time every count made by a callback.
+     *
+     * @param view     View name, such as {@code patient}.
+     * @param grid     Grid within the view.
+     * @param callback Count callback to time.
+     * @return The timed callback.
+     */
+    public <T> CallbackDataProvider.CountCallback<T, Void> count(String view, String grid,
+                                                              CallbackDataProvider.CountCallback<T, Void> callback) {
+        Timer timer = timer(view, grid, "count");
+        return query -> {
+            QueryInspector.label(view);
+            Timer.Sample sample = Timer.start(registry);
+            try {
+                return callback.count(query);
+            } finally {
+                sample.stop(timer);
+            }
+        };
+    }
+
+    private Timer timer(String view, String grid, String operation) {
+        return Timer.builder(TIMER)
+                .description("Time to load a grid page or count")
+                .tags("view", view, "grid", grid, "operation", operation)
+                .register(registry);
+    }
+}
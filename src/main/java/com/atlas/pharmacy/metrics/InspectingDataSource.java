@@ -0,0 +1,88 @@
+package com.atlas.pharmacy.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+
+/**
+ * Data source whose statements report each execution, with its time, to the {@link QueryInspector}.
+ * <p>
+ * Connections and statements are wrapped in proxies that time the {@code execute} methods; a JDBC batch
+ * counts as one statement. Pool metrics still see the pool, as Spring Boot unwraps delegating data sources.
+ * The inspector is looked up on first use, as the data source is needed before the metrics are set up.
+ */
+public class InspectingDataSource extends DelegatingDataSource {
+
+    private final Supplier<QueryInspector> inspectorSupplier;
+    private volatile QueryInspector inspector;
+
+    public InspectingDataSource(DataSource target, Supplier<QueryInspector> inspectorSupplier) {
+        super(target);
+        this.inspectorSupplier = inspectorSupplier;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection connection(Connection target) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    return switch (method.getName()) {
+                        case "prepareStatement" -> statement(PreparedStatement.class, (Statement) result, (String) args[0]);
+                        case "prepareCall" -> statement(CallableStatement.class, (Statement) result, (String) args[0]);
+                        case "createStatement" -> statement(Statement.class, (Statement) result, null);
+                        default -> result;
+                    };
+                });
+    }
+
+    private Statement statement(Class<? extends Statement> type, Statement target, String sql) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return invoke(target, method, args);
+            }
+            // Plain statements carry their text in the execute call
+            String text = args != null && args.length > 0 && args[0] instanceof String s ? s : sql;
+            long start = System.nanoTime();
+            Object result = invoke(target, method, args);
+            inspector().record(text, System.nanoTime() - start);
+            return result;
+        };
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private QueryInspector inspector() {
+        QueryInspector current = inspector;
+        if (current == null) {
+            current = inspectorSupplier.get();
+            inspector = current;
+        }
+        return current;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.atlas.pharmacy.metrics;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Micrometer instrumentation, scraped by Prometheus from the management port.
+ * <p>
+ * Services annotated with {@link io.micrometer.core.annotation.Timed} get a timer per method, tagged with
+ * the class, the method and the exception thrown if any, so the count of each tag set doubles as a call
+ * and error counter. Hibernate statistics, including second-level cache hits and misses per region, are
+ * bound by Spring Boot when {@code hibernate.generate_statistics} is on.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfiguration {
+
+    public static final String SERVICE_TIMER = "atlas.service";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
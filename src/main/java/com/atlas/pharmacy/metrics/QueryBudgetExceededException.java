@@ -0,0 +1,11 @@
+package com.atlas.pharmacy.metrics;
+
+/**
+ * Thrown in strict mode by the statement that takes a request over its query budget.
+ */
+public class QueryBudgetExceededException extends RuntimeException {
+
+    public QueryBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,154 @@
+package com.atlas.pharmacy.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the SQL statements run by each request and reports the ones that cost too much.
+ * <p>
+ * Statements are reported to the inspector by {@link InspectingDataSource}, and requests are delimited by
+ * {@link QueryInspectorFilter}; views label the request with their name so it is held to the view's budget.
+ * Within a request, the same statement text run {@code repeatThreshold} times is reported as a likely N+1:
+ * Hibernate binds IDs as parameters, so loading rows one by one repeats one text. Slow statements are logged
+ * with the application frame that ran them whether or not they belong to a request.
+ * <p>
+ * Over budget, a request is logged, or in strict mode failed, which lets integration tests hold views to
+ * their budgets.
+ */
+public class QueryInspector {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryInspector.class);
+    private static final ThreadLocal<RequestQueries> CURRENT = new ThreadLocal<>();
+    private static final String PACKAGE = "com.atlas.pharmacy.";
+    private static final String OWN_PACKAGE = QueryInspector.class.getPackageName() + ".";
+
+    private final QueryInspectorProperties properties;
+    private final MeterRegistry registry;
+    private final long slowThresholdNanos;
+    private final Counter slowStatements;
+    private final Counter repeatedStatements;
+
+    public QueryInspector(QueryInspectorProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+        this.slowThresholdNanos = properties.slowThreshold().toNanos();
+        this.slowStatements = Counter.builder("atlas.query.slow")
+                .description("Statements slower than the configured threshold")
+                .register(registry);
+        this.repeatedStatements = Counter.builder("atlas.query.repeated")
+                .description("Statements repeated often enough in one request to be a likely N+1")
+                .register(registry);
+    }
+
+    /**
+     * Name the view the current request belongs to, so its budget applies. Does nothing outside a request.
+     *
+     * @param view First segment of the view's route, such as {@code patient}.
+     */
+    public static void label(String view) {
+        RequestQueries request = CURRENT.get();
+        if (request != null) {
+            request.view = view;
+        }
+    }
+
+    /**
+     * Start counting the statements of a request on this thread.
+     *
+     * @param description Method and path, for the log.
+     */
+    void begin(String description) {
+        CURRENT.set(new RequestQueries(description));
+    }
+
+    /**
+     * Stop counting and record how many statements the request ran.
+     */
+    void end() {
+        RequestQueries request = CURRENT.get();
+        CURRENT.remove();
+        if (request == null || request.count == 0) {
+            return;
+        }
+        DistributionSummary.builder("atlas.request.queries")
+                .description("SQL statements run by one request")
+                .tag("view", viewTag(request.view))
+                .register(registry)
+                .record(request.count);
+        log.debug("{} ran {} statements", request, request.count);
+    }
+
+    /**
+     * Account for one executed statement.
+     *
+     * @param sql   Statement text, with parameters as placeholders.
+     * @param nanos Time the statement took to execute.
+     */
+    void record(String sql, long nanos) {
+        if (nanos >= slowThresholdNanos) {
+            slowStatements.increment();
+            log.warn("Slow statement, {} ms at {}: {}", TimeUnit.NANOSECONDS.toMillis(nanos), callSite(), sql);
+        }
+
+        RequestQueries request = CURRENT.get();
+        if (request == null) {
+            return;
+        }
+        int count = ++request.count;
+        if (sql != null && request.repeats.merge(sql, 1, Integer::sum) == properties.repeatThreshold()) {
+            repeatedStatements.increment();
+            log.warn("Likely N+1 in {}, statement run {} times, last at {}: {}", request,
+                    properties.repeatThreshold(), callSite(), sql);
+        }
+
+        int budget = properties.budget(request.view);
+        // Only the first statement over budget is logged, so the stack is walked once per request at most
+        boolean strict = properties.strict();
+        if (count > budget && (strict || count == budget + 1)) {
+            String message = request + " ran more than its budget of " + budget + " statements, the last at "
+                    + callSite() + ": " + sql;
+            if (strict) {
+                throw new QueryBudgetExceededException(message);
+            }
+            log.warn(message);
+        }
+    }
+
+    // Labels come from any URL navigated to, so only views with a budget get a series of their own
+    private String viewTag(String view) {
+        return view != null && properties.viewBudgets().containsKey(view) ? view : "other";
+    }
+
+    private static String callSite() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(PACKAGE)
+                        && !frame.getClassName().startsWith(OWN_PACKAGE))
+                .findFirst()
+                .map(StackWalker.StackFrame::toString)
+                .orElse("unknown"));
+    }
+
+    private static final class RequestQueries {
+
+        private final String description;
+        private final Map<String, Integer> repeats = new HashMap<>();
+        private String view;
+        private int count;
+
+        private RequestQueries(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            return view == null ? description : description + " (" + view + ")";
+        }
+    }
+}
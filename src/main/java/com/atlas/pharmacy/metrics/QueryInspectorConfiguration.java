@@ -0,0 +1,54 @@
+package com.atlas.pharmacy.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * Per-request statement counting, on unless {@code atlas.query-inspector.enabled=false}.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(QueryInspectorProperties.class)
+@ConditionalOnProperty(name = "atlas.query-inspector.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryInspectorConfiguration {
+
+    @Bean
+    public QueryInspector queryInspector(QueryInspectorProperties properties, MeterRegistry registry) {
+        return new QueryInspector(properties, registry);
+    }
+
+    // Static, and resolving the inspector lazily, so post-processing does not create the metrics early
+    @Bean
+    public static BeanPostProcessor inspectingDataSourcePostProcessor(ObjectProvider<QueryInspector> inspector) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof InspectingDataSource)) {
+                    return new InspectingDataSource(dataSource, inspector::getObject);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryInspectorFilter> queryInspectorFilter(QueryInspector inspector) {
+        FilterRegistrationBean<QueryInspectorFilter> registration =
+                new FilterRegistrationBean<>(new QueryInspectorFilter(inspector));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public ViewQueryLabels viewQueryLabels() {
+        return new ViewQueryLabels();
+    }
+}
@@ -0,0 +1,32 @@
+package com.atlas.pharmacy.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Delimits each HTTP request, Vaadin's included, for the {@link QueryInspector}.
+ */
+public class QueryInspectorFilter extends OncePerRequestFilter {
+
+    private final QueryInspector inspector;
+
+    public QueryInspectorFilter(QueryInspector inspector) {
+        this.inspector = inspector;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        inspector.begin(request.getMethod() + " " + request.getRequestURI());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            inspector.end();
+        }
+    }
+}
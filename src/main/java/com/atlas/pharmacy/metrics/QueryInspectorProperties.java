@@ -0,0 +1,36 @@
+package com.atlas.pharmacy.metrics;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Settings of the {@link QueryInspector}, under {@code atlas.query-inspector}.
+ *
+ * @param enabled         Whether statements are counted at all.
+ * @param requestBudget   Statements allowed in one request that has no budget of its own.
+ * @param viewBudgets     Statements allowed in one request of a view, by the first segment of its route.
+ *                        Requests of other views are also recorded under the view {@code other}.
+ * @param slowThreshold   Statements taking at least this long are logged with their call site.
+ * @param repeatThreshold The same statement run this many times in one request is reported as a likely N+1.
+ * @param strict          Fail the statement that goes over budget instead of logging, for integration tests.
+ */
+@ConfigurationProperties("atlas.query-inspector")
+public record QueryInspectorProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("100") int requestBudget,
+        Map<String, Integer> viewBudgets,
+        @DefaultValue("500ms") Duration slowThreshold,
+        @DefaultValue("10") int repeatThreshold,
+        @DefaultValue("false") boolean strict) {
+
+    public QueryInspectorProperties {
+        viewBudgets = viewBudgets == null ? Map.of() : Map.copyOf(viewBudgets);
+    }
+
+    int budget(String view) {
+        return view == null ? requestBudget : viewBudgets.getOrDefault(view, requestBudget);
+    }
+}
@@ -0,0 +1,17 @@
+package com.atlas.pharmacy.metrics;
+
+import com.vaadin.flow.server.ServiceInitEvent;
+import com.vaadin.flow.server.VaadinServiceInitListener;
+
+/**
+ * Labels navigation requests with the view navigated to, so view construction is held to the view's budget.
+ * Grid fetches label their own requests through {@link DataProviderMetrics}.
+ */
+public class ViewQueryLabels implements VaadinServiceInitListener {
+
+    @Override
+    public void serviceInit(ServiceInitEvent event) {
+        event.getSource().addUIInitListener(uiInit -> uiInit.getUI().addBeforeEnterListener(
+                enter -> QueryInspector.label(enter.getLocation().getFirstSegment())));
+    }
+}
@@ -2,6 +2,8 @@ package com.atlas.pharmacy.security;
 
 import com.atlas.pharmacy.data.entity.User;
 import com.atlas.pharmacy.data.service.UserRepository;
+import com.atlas.pharmacy.data.service.UserSummary;
+import com.vaadin.flow.server.VaadinSession;
 import com.vaadin.flow.spring.security.AuthenticationContext;
 import java.util.Optional;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -23,6 +25,30 @@ public class AuthenticatedUser {
                 .map(userDetails -> userRepository.findByUsername(userDetails.getUsername()));
     }
 
+    /**
+     * Get the signed-in user for display, looked up once per Vaadin session.
+     * <p>
+     * Signing out ends the session, so a summary never outlives the authentication it was read for.
+     * The summary is reread if the session holds one for a different user.
+     */
+    public Optional<UserSummary> getSummary() {
+        Optional<String> username = authenticationContext.getAuthenticatedUser(UserDetails.class)
+                .map(UserDetails::getUsername);
+        if (username.isEmpty()) {
+            return Optional.empty();
+        }
+        VaadinSession session = VaadinSession.getCurrent();
+        if (session == null) {
+            return userRepository.findSummaryByUsername(username.get());
+        }
+        UserSummary summary = session.getAttribute(UserSummary.class);
+        if (summary == null || !summary.username().equals(username.get())) {
+            summary = userRepository.findSummaryByUsername(username.get()).orElse(null);
+            session.setAttribute(UserSummary.class, summary);
+        }
+        return Optional.ofNullable(summary);
+    }
+
     public void logout() {
         authenticationContext.logout();
     }
@@ -0,0 +1,70 @@
+package com.atlas.pharmacy.security;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many passwords are hashed at once.
+ * <p>
+ * Hashing is deliberately CPU bound. When many users sign in together, unlimited hashing would take every
+ * core and starve the requests of users already signed in. Beyond the limit, callers wait for a slot, and a
+ * login that cannot get one within the wait fails quickly instead of adding to the queue.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final Semaphore slots;
+    private final long waitNanos;
+
+    /**
+     * @param delegate Encoder doing the hashing.
+     * @param threads  Maximum number of hashes computed at once.
+     * @param wait     Longest time to wait for a slot.
+     */
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, Duration wait) {
+        this.delegate = delegate;
+        this.slots = new Semaphore(threads, true);
+        this.waitNanos = wait.toNanos();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        acquire();
+        try {
+            return delegate.encode(rawPassword);
+        } finally {
+            slots.release();
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        acquire();
+        try {
+            return delegate.matches(rawPassword, encodedPassword);
+        } finally {
+            slots.release();
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // Only inspects the hash prefix, no hashing
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private void acquire() {
+        try {
+            if (!slots.tryAcquire(waitNanos, TimeUnit.NANOSECONDS)) {
+                throw new AuthenticationServiceException("Too many sign-ins in progress, please try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Interrupted while waiting to check the password", e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.atlas.pharmacy.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Users recently loaded for sign-in, so a burst of logins reads each user from the database once.
+ * <p>
+ * The cache is local to the replica. Changes made through {@code UserService} evict the user here at once;
+ * a password or role changed on the other replica takes effect here when the entry expires, a short time
+ * after it was loaded. Entries are copied in and out, as a successful authentication erases the password
+ * of the user it was given.
+ */
+@Component
+public class CaffeineUserCache implements UserCache {
+
+    private final Cache<String, UserDetails> cache;
+
+    public CaffeineUserCache(@Value("${atlas.security.user-cache-ttl:PT30S}") Duration timeToLive,
+                             @Value("${atlas.security.user-cache-size:1000}") long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(timeToLive)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        UserDetails user = cache.getIfPresent(username);
+        return user == null ? null : copy(user);
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        cache.put(user.getUsername(), copy(user));
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        cache.invalidate(username);
+    }
+
+    private static UserDetails copy(UserDetails user) {
+        return User.withUserDetails(user).build();
+    }
+}
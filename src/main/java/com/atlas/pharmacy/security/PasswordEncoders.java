@@ -0,0 +1,48 @@
+package com.atlas.pharmacy.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.Map;
+
+/**
+ * Password encoders by algorithm, with their cost configurable.
+ * <p>
+ * New hashes are written with an {@code {id}} prefix naming the algorithm. Any supported algorithm still
+ * matches, and unprefixed hashes, such as the seed users', are read as bcrypt. A hash written with another
+ * algorithm asks to be upgraded, which happens on the next login. So does a bcrypt hash with a lower strength than
+ * configured. A PBKDF2 hash does not record its iteration count, so raising the iterations only applies to
+ * passwords set afterwards; existing PBKDF2 hashes keep the count they were written with.
+ */
+public final class PasswordEncoders {
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String PBKDF2 = "pbkdf2";
+
+    private PasswordEncoders() {
+    }
+
+    /**
+     * Create an encoder writing new hashes with one algorithm and matching all of them.
+     *
+     * @param id               Algorithm for new hashes, {@value #BCRYPT} or {@value #PBKDF2}.
+     * @param bcryptStrength   Log2 of the bcrypt rounds, 4 to 31; each step doubles the time per hash.
+     * @param pbkdf2Iterations PBKDF2-HMAC-SHA256 iterations.
+     * @return The encoder.
+     */
+    public static PasswordEncoder create(String id, int bcryptStrength, int pbkdf2Iterations) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = Map.of(
+                BCRYPT, bcrypt,
+                PBKDF2, new Pbkdf2PasswordEncoder("", 16, pbkdf2Iterations,
+                        Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+        if (!encoders.containsKey(id)) {
+            throw new IllegalArgumentException("Unknown password encoder " + id + ", expected one of " + encoders.keySet());
+        }
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(id, encoders);
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+}
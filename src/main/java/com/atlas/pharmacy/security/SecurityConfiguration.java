@@ -1,28 +1,48 @@
 package com.atlas.pharmacy.security;
 
+import com.atlas.pharmacy.data.Role;
 import com.atlas.pharmacy.views.login.LoginView;
 import com.vaadin.flow.spring.security.VaadinWebSecurity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
+import java.time.Duration;
+
 @EnableWebSecurity
 @Configuration
 public class SecurityConfiguration extends VaadinWebSecurity {
 
+    /**
+     * Password encoder for new hashes and logins; stored hashes are upgraded on login as described in
+     * {@link PasswordEncoders}.
+     * Without a configured number of hashing threads, one thread per processor may hash at once.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${atlas.security.password-encoder:bcrypt}") String encoder,
+                                           @Value("${atlas.security.bcrypt-strength:10}") int bcryptStrength,
+                                           @Value("${atlas.security.pbkdf2-iterations:310000}") int pbkdf2Iterations,
+                                           @Value("${atlas.security.hashing-threads:0}") int hashingThreads,
+                                           @Value("${atlas.security.hashing-wait:PT2S}") Duration hashingWait) {
+        int threads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(PasswordEncoders.create(encoder, bcryptStrength, pbkdf2Iterations),
+                threads, hashingWait);
     }
 
     @Override
     protected void configure(HttpSecurity http) throws Exception {
 
         http.authorizeHttpRequests().requestMatchers(new AntPathRequestMatcher("/images/*.png")).permitAll();
+        http.authorizeHttpRequests().requestMatchers(new AntPathRequestMatcher("/export/**")).hasRole(Role.ADMIN.name());
+        // Only exposed on the management port, which is reachable from inside the cluster alone
+        http.authorizeHttpRequests().requestMatchers(EndpointRequest.to(HealthEndpoint.class, PrometheusScrapeEndpoint.class)).permitAll();
         super.configure(http);
         setLoginView(http, LoginView.class);
     }
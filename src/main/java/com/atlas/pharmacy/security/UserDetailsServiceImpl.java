@@ -2,33 +2,65 @@ package com.atlas.pharmacy.security;
 
 import com.atlas.pharmacy.data.entity.User;
 import com.atlas.pharmacy.data.service.UserRepository;
+import com.atlas.pharmacy.data.service.UserService;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+/**
+ * Users for sign-in. Users are not kept in Hibernate's caches; loaded users are kept for a short time in the
+ * {@link UserCache} instead, so a burst of logins reads each user from the database once. When the password
+ * encoder asks for a hash to be upgraded, the new hash is stored here after the password has been checked,
+ * which evicts the cached user.
+ */
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final UserService userService;
+    private final UserCache userCache;
 
-    public UserDetailsServiceImpl(UserRepository userRepository) {
+    public UserDetailsServiceImpl(UserRepository userRepository, UserService userService, UserCache userCache) {
         this.userRepository = userRepository;
+        this.userService = userService;
+        this.userCache = userCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetails cached = userCache.getUserFromCache(username);
+        if (cached != null) {
+            return cached;
+        }
         User user = userRepository.findByUsername(username);
         if (user == null) {
             throw new UsernameNotFoundException("No user present with username: " + username);
         } else {
-            return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getHashedPassword(),
-                    getAuthorities(user));
+            UserDetails details = new org.springframework.security.core.userdetails.User(user.getUsername(),
+                    user.getHashedPassword(), getAuthorities(user));
+            userCache.putUserInCache(details);
+            return details;
+        }
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername());
+        if (user == null) {
+            return userDetails;
         }
+        user.setHashedPassword(newPassword);
+        userService.update(user);
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
     }
 
     private static List<GrantedAuthority> getAuthorities(User user) {
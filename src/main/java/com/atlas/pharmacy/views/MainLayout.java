@@ -1,9 +1,11 @@
 package com.atlas.pharmacy.views;
 
-import com.atlas.pharmacy.data.entity.User;
+import com.atlas.pharmacy.api.AvatarController;
+import com.atlas.pharmacy.data.service.UserSummary;
 import com.atlas.pharmacy.security.AuthenticatedUser;
 import com.atlas.pharmacy.views.dash.DashboardView;
 import com.atlas.pharmacy.views.drug.DrugView;
+import com.atlas.pharmacy.views.importer.ImportView;
 import com.atlas.pharmacy.views.patient.PatientView;
 import com.atlas.pharmacy.views.prescriber.PrescriberView;
 import com.atlas.pharmacy.views.prescription.PrescriptionView;
@@ -24,7 +26,6 @@ import com.vaadin.flow.component.html.UnorderedList;
 import com.vaadin.flow.component.icon.Icon;
 import com.vaadin.flow.component.menubar.MenuBar;
 import com.vaadin.flow.router.RouterLink;
-import com.vaadin.flow.server.StreamResource;
 import com.vaadin.flow.server.auth.AccessAnnotationChecker;
 import com.vaadin.flow.theme.lumo.LumoUtility.AlignItems;
 import com.vaadin.flow.theme.lumo.LumoUtility.BoxSizing;
@@ -41,7 +42,6 @@ import com.vaadin.flow.theme.lumo.LumoUtility.Padding;
 import com.vaadin.flow.theme.lumo.LumoUtility.TextColor;
 import com.vaadin.flow.theme.lumo.LumoUtility.Whitespace;
 import com.vaadin.flow.theme.lumo.LumoUtility.Width;
-import java.io.ByteArrayInputStream;
 import java.util.Optional;
 
 /**
@@ -114,14 +114,15 @@ public class MainLayout extends AppLayout {
         appName.addClassNames(Margin.Vertical.MEDIUM, Margin.End.AUTO, FontSize.LARGE);
         layout.add(appName);
 
-        Optional<User> maybeUser = authenticatedUser.get();
+        // Read once per session; the picture is a separate, browser-cached request
+        Optional<UserSummary> maybeUser = authenticatedUser.getSummary();
         if (maybeUser.isPresent()) {
-            User user = maybeUser.get();
+            UserSummary user = maybeUser.get();
 
-            Avatar avatar = new Avatar(user.getName());
-            StreamResource resource = new StreamResource("profile-pic",
-                    () -> new ByteArrayInputStream(user.getProfilePicture()));
-            avatar.setImageResource(resource);
+            Avatar avatar = new Avatar(user.name());
+            if (user.pictureVersion() != null) {
+                avatar.setImage(AvatarController.link(user.id(), user.pictureVersion(), 64));
+            }
             avatar.setThemeName("xsmall");
             avatar.getElement().setAttribute("tabindex", "-1");
 
@@ -131,7 +132,7 @@ public class MainLayout extends AppLayout {
             MenuItem userName = userMenu.addItem("");
             Div div = new Div();
             div.add(avatar);
-            div.add(user.getName());
+            div.add(user.name());
             div.add(new Icon("lumo", "dropdown"));
             div.getElement().getStyle().set("display", "flex");
             div.getElement().getStyle().set("align-items", "center");
@@ -179,6 +180,8 @@ public class MainLayout extends AppLayout {
                 new MenuItemInfo("Prescriber", "la la-stethoscope", PrescriberView.class), //
 
                 new MenuItemInfo("Drug", "la la-prescription-bottle", DrugView.class), //
+
+                new MenuItemInfo("Import", "la la-file-import", ImportView.class), //
         };
     }
 
@@ -0,0 +1,94 @@
+package com.atlas.pharmacy.views.dash;
+
+import com.atlas.pharmacy.data.service.StatisticsChangedEvent;
+import com.atlas.pharmacy.data.service.StatisticsService;
+import com.atlas.pharmacy.data.service.StatisticsSnapshot;
+import com.vaadin.flow.shared.Registration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Shares one statistics snapshot between all open dashboards.
+ * <p>
+ * Saves only mark the snapshot stale. A scheduled tick takes a new snapshot at most once per refresh
+ * interval, and only while a dashboard is open, then hands the same snapshot to every dashboard. Bursts
+ * of changes are coalesced into one set of queries, however many dashboards are open.
+ */
+@Component
+public class DashboardBroadcaster {
+
+    static final int DAYS = 14;
+    static final int TOP_DRUGS = 10;
+
+    private final StatisticsService statisticsService;
+    private final Set<Consumer<StatisticsSnapshot>> listeners = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    // A lock rather than synchronized: snapshots run queries, which would pin a virtual thread's carrier
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    private volatile StatisticsSnapshot snapshot;
+
+    public DashboardBroadcaster(StatisticsService statisticsService) {
+        this.statisticsService = statisticsService;
+    }
+
+    /**
+     * Receive every new snapshot until the registration is removed.
+     * The listener is called from a background thread.
+     */
+    public Registration register(Consumer<StatisticsSnapshot> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    /**
+     * Get the latest snapshot, taking the first one if none was taken yet.
+     */
+    public StatisticsSnapshot getSnapshot() {
+        snapshotLock.lock();
+        try {
+            if (snapshot == null) {
+                stale.set(false);
+                snapshot = takeSnapshot();
+            }
+            return snapshot;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatisticsChanged(StatisticsChangedEvent event) {
+        stale.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${atlas.dashboard.refresh-interval:PT5S}")
+    public void refresh() {
+        StatisticsSnapshot current = snapshot;
+        boolean dayChanged = current != null && !current.day().equals(LocalDate.now());
+        if (listeners.isEmpty() || !(dayChanged || stale.getAndSet(false))) {
+            return;
+        }
+        StatisticsSnapshot next;
+        snapshotLock.lock();
+        try {
+            next = takeSnapshot();
+            snapshot = next;
+        } finally {
+            snapshotLock.unlock();
+        }
+        listeners.forEach(listener -> listener.accept(next));
+    }
+
+    private StatisticsSnapshot takeSnapshot() {
+        return statisticsService.snapshot(LocalDate.now(), DAYS, TOP_DRUGS);
+    }
+}
@@ -1,33 +1,155 @@
 package com.atlas.pharmacy.views.dash;
 
-import com.atlas.pharmacy.data.service.PRMService;
+import com.atlas.pharmacy.data.service.StatisticsSnapshot;
 import com.atlas.pharmacy.views.MainLayout;
 import com.github.appreciated.apexcharts.ApexCharts;
-import com.github.appreciated.apexcharts.config.Chart;
+import com.github.appreciated.apexcharts.ApexChartsBuilder;
+import com.github.appreciated.apexcharts.config.builder.ChartBuilder;
+import com.github.appreciated.apexcharts.config.builder.XAxisBuilder;
 import com.github.appreciated.apexcharts.config.chart.Type;
+import com.github.appreciated.apexcharts.helper.Series;
+import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.board.Board;
+import com.vaadin.flow.component.html.H2;
+import com.vaadin.flow.component.html.H3;
+import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.flow.theme.lumo.LumoUtility;
 import jakarta.annotation.security.PermitAll;
 
-import java.util.Map;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Objects;
 
+/**
+ * Live operational dashboard.
+ * <p>
+ * The view renders the snapshot shared by {@link DashboardBroadcaster} and re-renders whenever a new one
+ * is pushed, so an open dashboard costs no queries of its own. The charts are created once; a push only
+ * sends the series, categories and labels that changed, not the chart configuration.
+ */
 @Route(value = "dashboard", layout = MainLayout.class)
 @PageTitle("Dashboard | Atlas")
 @PermitAll
 public class DashboardView extends VerticalLayout {
 
-    private final PRMService prmService;
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("MMM d");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
 
-    public DashboardView(PRMService prmService) {
-        this.prmService = prmService;
+    private final DashboardBroadcaster broadcaster;
+
+    private final Span refillsDue = new Span();
+    private final Span dispensedToday = new Span();
+    private final Span patients = new Span();
+    private final Span updated = new Span();
+    private final ApexCharts dispensedChart = createBarChart();
+    private final ApexCharts drugChart = createBarChart();
+    private final ApexCharts occupationChart = ApexChartsBuilder.get()
+            .withChart(ChartBuilder.get().withType(Type.PIE).build())
+            .build();
+
+    private String[] dispensedDays = new String[0];
+    private String[] drugNames = new String[0];
+    private String[] occupations = new String[0];
+
+    private Registration registration;
+
+    public DashboardView(DashboardBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+        addClassName("dashboard-view");
 
         // Set the view settings
         setSizeFull();
         setPadding(true);
         setSpacing(true);
 
+        Board board = new Board();
+        board.addRow(createHighlight("Refills due today", refillsDue),
+                createHighlight("Dispensed today", dispensedToday),
+                createHighlight("Patients", patients));
+        board.addRow(createChartCard("Prescriptions dispensed per day", dispensedChart));
+        board.addRow(createChartCard("Top drugs", drugChart), createChartCard("Patients by occupation", occupationChart));
+
+        updated.addClassNames(LumoUtility.FontSize.XSMALL, LumoUtility.TextColor.SECONDARY);
+        add(board, updated);
     }
-}
 
+    @Override
+    protected void onAttach(AttachEvent attachEvent) {
+        UI ui = attachEvent.getUI();
+        registration = broadcaster.register(snapshot -> ui.access(() -> render(snapshot)));
+        render(broadcaster.getSnapshot());
+    }
+
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        registration.remove();
+        registration = null;
+    }
+
+    private void render(StatisticsSnapshot snapshot) {
+        refillsDue.setText(String.valueOf(snapshot.refillsDue()));
+        dispensedToday.setText(String.valueOf(snapshot.dispensedPerDay().getOrDefault(snapshot.day(), 0L)));
+        patients.setText(String.valueOf(snapshot.patientsByOccupation().values().stream().mapToLong(Long::longValue).sum()));
+        updated.setText("Updated " + snapshot.takenAt().format(TIME_FORMAT));
+
+        String[] days = snapshot.dispensedPerDay().keySet().stream().map(DAY_FORMAT::format).toArray(String[]::new);
+        if (!Arrays.equals(days, dispensedDays)) {
+            dispensedDays = days;
+            dispensedChart.setXaxis(XAxisBuilder.get().withCategories(days).build());
+        }
+        dispensedChart.setSeries(new Series<>("Dispensed", snapshot.dispensedPerDay().values().toArray(Long[]::new)));
 
+        String[] drugs = snapshot.topDrugs().keySet().toArray(String[]::new);
+        if (!Arrays.equals(drugs, drugNames)) {
+            drugNames = drugs;
+            drugChart.setXaxis(XAxisBuilder.get().withCategories(drugs).build());
+        }
+        drugChart.setSeries(new Series<>("Prescriptions", snapshot.topDrugs().values().toArray(Long[]::new)));
+
+        String[] labels = snapshot.patientsByOccupation().keySet().stream()
+                .map(label -> Objects.toString(label, "Not specified")).toArray(String[]::new);
+        if (!Arrays.equals(labels, occupations)) {
+            occupations = labels;
+            occupationChart.setLabels(labels);
+        }
+        occupationChart.setSeries(snapshot.patientsByOccupation().values().stream().map(Long::doubleValue).toArray(Double[]::new));
+    }
+
+    private Component createHighlight(String title, Span value) {
+        H2 heading = new H2(title);
+        heading.addClassNames(LumoUtility.FontWeight.NORMAL, LumoUtility.Margin.NONE, LumoUtility.TextColor.SECONDARY,
+                LumoUtility.FontSize.XSMALL);
+        value.addClassNames(LumoUtility.FontWeight.SEMIBOLD, LumoUtility.FontSize.XXXLARGE);
+
+        VerticalLayout layout = new VerticalLayout(heading, value);
+        layout.addClassName(LumoUtility.Padding.LARGE);
+        layout.setPadding(false);
+        layout.setSpacing(false);
+        return layout;
+    }
+
+    private Component createChartCard(String title, ApexCharts chart) {
+        H3 heading = new H3(title);
+        heading.addClassNames(LumoUtility.FontSize.XLARGE, LumoUtility.Margin.NONE);
+        chart.setWidthFull();
+
+        VerticalLayout layout = new VerticalLayout(heading, chart);
+        layout.addClassName(LumoUtility.Padding.LARGE);
+        layout.setPadding(false);
+        layout.setSpacing(false);
+        return layout;
+    }
+
+    private static ApexCharts createBarChart() {
+        return ApexChartsBuilder.get()
+                .withChart(ChartBuilder.get().withType(Type.BAR).build())
+                .build();
+    }
+}
@@ -2,8 +2,10 @@ package com.atlas.pharmacy.views.drug;
 
 import com.atlas.pharmacy.api.UITool;
 import com.atlas.pharmacy.data.entity.Drug;
+import com.atlas.pharmacy.data.search.CatalogueDrug;
 import com.atlas.pharmacy.data.service.PRMService;
 import com.atlas.pharmacy.views.MainLayout;
+import com.atlas.pharmacy.metrics.DataProviderMetrics;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.dependency.Uses;
@@ -19,6 +21,7 @@ import com.vaadin.flow.component.splitlayout.SplitLayout;
 import com.vaadin.flow.component.textfield.TextField;
 import com.vaadin.flow.data.binder.BeanValidationBinder;
 import com.vaadin.flow.data.binder.ValidationException;
+import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.router.BeforeEnterEvent;
 import com.vaadin.flow.router.BeforeEnterObserver;
 import com.vaadin.flow.router.PageTitle;
@@ -39,7 +42,7 @@ public class DrugView extends Div implements BeforeEnterObserver {
     private final String DRUG_ID = "drugID";
     private final String DRUG_EDIT_ROUTE_TEMPLATE = "drug/%s/edit";
 
-    private final Grid<Drug> grid = new Grid<>(Drug.class, false);
+    private final Grid<CatalogueDrug> grid = new Grid<>(CatalogueDrug.class, false);
     private final Button delete = new Button("Delete");
     private final Button cancel = new Button("Cancel");
     private final Button save = new Button("Save");
@@ -59,7 +62,7 @@ public class DrugView extends Div implements BeforeEnterObserver {
 
     private Drug drug;
 
-    public DrugView(PRMService prmService) {
+    public DrugView(PRMService prmService, DataProviderMetrics metrics) {
         this.prmService = prmService;
         addClassNames("drug-view");
 
@@ -79,25 +82,31 @@ public class DrugView extends Div implements BeforeEnterObserver {
         grid.addColumn("strength").setAutoWidth(true);
         grid.addColumn("strength_unit").setAutoWidth(true);
 
-        grid.setItems(prmService.getDrugService().fetchDrugs());
-
-//        grid.setItems(query ->
-//                prmService.getDrugService().list(
-//                                PageRequest.of(
-//                                        query.getPage(),
-//                                        query.getPageSize(),
-//                                        VaadinSpringDataHelpers.toSpringDataSort(query)
-//                                )
-//                        )
-//                        .stream()
-//        );
+        // Pages are served from the local drug catalogue, filtered by the search field
+        grid.setItems(metrics.fetch("drug", "drugs", query ->
+                        prmService.getDrugService().listCatalogue(
+                                        PageRequest.of(
+                                                query.getPage(),
+                                                query.getPageSize(),
+                                                VaadinSpringDataHelpers.toSpringDataSort(query)
+                                        ),
+                                        searchField.getValue()
+                                )
+                                .stream()),
+                metrics.count("drug", "drugs", query -> prmService.getDrugService().countCatalogue(searchField.getValue()))
+        );
 
         grid.addThemeVariants(GridVariant.LUMO_NO_BORDER);
 
-        // when a row is selected or deselected, populate form
+        // when a row is selected or deselected, populate form; entries not stored yet are edited as new drugs
         grid.asSingleSelect().addValueChangeListener(event -> {
             if (event.getValue() != null) {
-                UI.getCurrent().navigate(String.format(DRUG_EDIT_ROUTE_TEMPLATE, event.getValue().getId()));
+                Optional<Drug> stored = prmService.getDrugService().findStored(event.getValue());
+                if (stored.isPresent()) {
+                    UI.getCurrent().navigate(String.format(DRUG_EDIT_ROUTE_TEMPLATE, stored.get().getId()));
+                } else {
+                    populateForm(event.getValue().toDrug());
+                }
             } else {
                 clearForm();
                 UI.getCurrent().navigate(DrugView.class);
@@ -176,6 +185,8 @@ public class DrugView extends Div implements BeforeEnterObserver {
         FormLayout formLayout = new FormLayout();
 
         searchField = new TextField("Search by drug code or ingredient name");
+        searchField.setValueChangeMode(ValueChangeMode.LAZY);
+        searchField.addValueChangeListener(e -> searchDrugs());
         searchButton = new Button("Search");
         searchButton.addClickListener(e -> searchDrugs());
         formLayout.add(searchField, searchButton);
@@ -219,11 +230,6 @@ public class DrugView extends Div implements BeforeEnterObserver {
     }
 
     private void searchDrugs() {
-        String query = searchField.getValue();
-        if (query.isEmpty()) {
-            grid.setItems(prmService.getDrugService().fetchDrugs());
-        } else {
-            grid.setItems(prmService.getDrugService().searchDrugs(query));
-        }
+        grid.getDataProvider().refreshAll();
     }
 }
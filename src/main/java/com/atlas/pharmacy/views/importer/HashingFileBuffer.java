@@ -0,0 +1,38 @@
+package com.atlas.pharmacy.views.importer;
+
+import com.vaadin.flow.component.upload.receivers.FileBuffer;
+
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Upload buffer that computes the SHA-256 of the file while writing it to disk, so the contents can identify
+ * an import without reading the file a second time.
+ */
+class HashingFileBuffer extends FileBuffer {
+
+    private MessageDigest digest;
+
+    @Override
+    public OutputStream receiveUpload(String fileName, String mimeType) {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        return new DigestOutputStream(super.receiveUpload(fileName, mimeType), digest);
+    }
+
+    /**
+     * Get the hash of the last file received; only valid once the upload has succeeded.
+     *
+     * @return Lower case hex SHA-256 of the file contents.
+     */
+    String getContentHash() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
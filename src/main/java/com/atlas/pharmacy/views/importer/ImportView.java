@@ -0,0 +1,132 @@
+package com.atlas.pharmacy.views.importer;
+
+import com.atlas.pharmacy.data.importer.ImportResult;
+import com.atlas.pharmacy.data.importer.ImportService;
+import com.atlas.pharmacy.data.importer.ImportType;
+import com.atlas.pharmacy.views.MainLayout;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.component.html.ListItem;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.html.UnorderedList;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.component.notification.NotificationVariant;
+import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.progressbar.ProgressBar;
+import com.vaadin.flow.component.select.Select;
+import com.vaadin.flow.component.upload.Upload;
+import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.theme.lumo.LumoUtility;
+import jakarta.annotation.security.RolesAllowed;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Upload of patient, prescriber and prescription files for a new store.
+ * <p>
+ * The upload is buffered to a temporary file and imported in the background, so the import neither holds
+ * the file in memory nor the session lock; progress is pushed as batches commit.
+ */
+@PageTitle("Import | Atlas")
+@Route(value = "import", layout = MainLayout.class)
+@RolesAllowed("ADMIN")
+public class ImportView extends VerticalLayout {
+
+    private static final String COMMA = "Comma";
+    private static final String PIPE = "Pipe";
+
+    private final ImportService importService;
+
+    private final Select<ImportType> type = new Select<>();
+    private final Select<String> delimiter = new Select<>();
+    private final Span columns = new Span();
+    private final HashingFileBuffer buffer = new HashingFileBuffer();
+    private final Upload upload = new Upload(buffer);
+    private final ProgressBar progress = new ProgressBar();
+    private final Span status = new Span();
+    private final UnorderedList errors = new UnorderedList();
+
+    public ImportView(ImportService importService) {
+        this.importService = importService;
+        addClassName("import-view");
+        setPadding(true);
+
+        type.setLabel("File contents");
+        type.setItems(ImportType.values());
+        type.setItemLabelGenerator(ImportType::getLabel);
+        type.addValueChangeListener(event -> columns.setText("Columns: " + event.getValue().getColumns()));
+        type.setValue(ImportType.PATIENTS);
+        delimiter.setLabel("Delimiter");
+        delimiter.setItems(COMMA, PIPE);
+        delimiter.setValue(COMMA);
+        columns.addClassNames(LumoUtility.FontSize.SMALL, LumoUtility.TextColor.SECONDARY);
+
+        upload.setAcceptedFileTypes(".csv", ".txt", "text/csv", "text/plain");
+        upload.setMaxFiles(1);
+        upload.addSucceededListener(event -> start(buffer.getFileData().getFile().toPath(), event.getFileName(),
+                buffer.getContentHash()));
+
+        progress.setIndeterminate(true);
+        progress.setVisible(false);
+        errors.addClassNames(LumoUtility.FontSize.SMALL, LumoUtility.TextColor.ERROR);
+
+        add(new HorizontalLayout(type, delimiter), columns, upload, progress, status, errors);
+    }
+
+    private void start(Path file, String fileName, String contentHash) {
+        UI ui = UI.getCurrent();
+        ImportType importType = type.getValue();
+        setRunning(true);
+        errors.removeAll();
+        status.setText("Importing " + fileName);
+
+        importService.submit(importType, fileName, contentHash, file, PIPE.equals(delimiter.getValue()) ? '|' : ',',
+                        records -> access(ui, () -> status.setText(records + " records processed")))
+                .whenComplete((result, error) -> {
+                    deleteQuietly(file);
+                    access(ui, () -> finish(result, error));
+                });
+    }
+
+    private void finish(ImportResult result, Throwable error) {
+        setRunning(false);
+        upload.clearFileList();
+        if (error != null) {
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            status.setText("Import stopped: " + cause.getMessage() + ". Upload the same file again to resume.");
+            Notification.show("Import failed").addThemeVariants(NotificationVariant.LUMO_ERROR);
+            return;
+        }
+        status.setText(String.format("%d records: %d imported, %d skipped, %d rejected in %d s",
+                result.records(), result.imported(), result.skipped(), result.rejected(), result.elapsed().toSeconds()));
+        result.errors().forEach(message -> errors.add(new ListItem(message)));
+        Notification.show("Import completed").addThemeVariants(NotificationVariant.LUMO_SUCCESS);
+    }
+
+    private void setRunning(boolean running) {
+        progress.setVisible(running);
+        upload.setVisible(!running);
+        type.setEnabled(!running);
+        delimiter.setEnabled(!running);
+    }
+
+    private static void access(UI ui, Runnable update) {
+        try {
+            ui.access(update::run);
+        } catch (UIDetachedException e) {
+            // The view was closed; the import carries on regardless
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Left to the temporary directory cleanup
+        }
+    }
+}
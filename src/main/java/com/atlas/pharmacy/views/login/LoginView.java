@@ -35,7 +35,7 @@ public class LoginView extends LoginOverlay implements BeforeEnterObserver {
 
     @Override
     public void beforeEnter(BeforeEnterEvent event) {
-        if (authenticatedUser.get().isPresent()) {
+        if (authenticatedUser.getSummary().isPresent()) {
             // Already logged in
             setOpened(false);
             event.forwardTo("");
@@ -4,9 +4,11 @@ import com.atlas.pharmacy.data.entity.Drug;
 import com.atlas.pharmacy.data.entity.Patient;
 import com.atlas.pharmacy.data.entity.Prescriber;
 import com.atlas.pharmacy.data.entity.Prescription;
+import com.atlas.pharmacy.data.search.CatalogueDrug;
 import com.atlas.pharmacy.data.service.PRMService;
 import com.atlas.pharmacy.data.service.PatientService;
 import com.atlas.pharmacy.views.MainLayout;
+import com.atlas.pharmacy.metrics.DataProviderMetrics;
 import com.vaadin.flow.component.*;
 import com.vaadin.flow.component.avatar.Avatar;
 import com.vaadin.flow.component.button.Button;
@@ -40,8 +42,8 @@ import com.vaadin.flow.data.converter.Converter;
 import com.vaadin.flow.data.binder.ValueContext;
 import com.vaadin.flow.data.converter.StringToDoubleConverter;
 import com.vaadin.flow.data.converter.StringToIntegerConverter;
-import com.vaadin.flow.data.provider.DataProvider;
 import com.vaadin.flow.data.renderer.ComponentRenderer;
+import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.router.BeforeEnterEvent;
 import com.vaadin.flow.router.BeforeEnterObserver;
 import com.vaadin.flow.router.PageTitle;
@@ -51,14 +53,15 @@ import com.vaadin.flow.theme.lumo.LumoUtility;
 import jakarta.annotation.security.PermitAll;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 
 import java.time.LocalDate;
 import java.util.*;
 
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
@@ -76,6 +79,7 @@ public class PatientView extends Div implements BeforeEnterObserver {
 
     private final PRMService prmService;
     private final PatientService patientService;
+    private final DataProviderMetrics metrics;
     private final Filters filters;
     private final Prescriptions prescriptions;
 
@@ -100,13 +104,14 @@ public class PatientView extends Div implements BeforeEnterObserver {
     private TextField allergy;
     private TextField healthCardId;
 
-    public PatientView(PatientService PatientService, PRMService prmService) {
+    public PatientView(PatientService PatientService, PRMService prmService, DataProviderMetrics metrics) {
         this.patientService = PatientService;
         this.prmService = prmService;
+        this.metrics = metrics;
         //setSizeFull();
         addClassNames("patient-view");
 
-        prescriptions = new Prescriptions(prmService, () -> {
+        prescriptions = new Prescriptions(prmService, metrics, () -> {
             clearForm();
             refreshGrid();
         });
@@ -212,7 +217,11 @@ public class PatientView extends Div implements BeforeEnterObserver {
 
     public static final class Prescriptions extends VerticalLayout {
 
+        private static final int HISTORY_PAGE_SIZE = 20;
+        private static final Sort HISTORY_ORDER = Sort.by(Sort.Order.desc("dispenseDate"), Sort.Order.desc("id"));
+
         private final PRMService prmService;
+        private final DataProviderMetrics metrics;
         private final Runnable func;
         private final BeanValidationBinder<Prescription> binder;
         private final BeanValidationBinder<Drug> drugBinder;
@@ -220,6 +229,9 @@ public class PatientView extends Div implements BeforeEnterObserver {
         private final ListBox<Prescription> listBox;
         private final Button refill;
         private final Button create;
+        private final Button more = new Button("Show more");
+        private final List<Prescription> loaded = new ArrayList<>();
+        private int nextPage;
 
         private Drug selectedDrug;
 
@@ -235,8 +247,9 @@ public class PatientView extends Div implements BeforeEnterObserver {
         private Prescription prescription;
         private Patient selectedPatient;
 
-        public Prescriptions(PRMService prmService, Runnable func) {
+        public Prescriptions(PRMService prmService, DataProviderMetrics metrics, Runnable func) {
             this.prmService = prmService;
+            this.metrics = metrics;
             this.func = func;
             this.listBox = new ListBox<>();
             this.binder = new BeanValidationBinder<>(Prescription.class);
@@ -324,8 +337,12 @@ public class PatientView extends Div implements BeforeEnterObserver {
                 dialog.open();
             });
 
+            this.more.addThemeVariants(ButtonVariant.LUMO_TERTIARY);
+            this.more.setVisible(false);
+            this.more.addClickListener(e -> loadNextPage());
+
             HorizontalLayout buttonLayout = new HorizontalLayout(refill, create);
-            add(listBox, buttonLayout);
+            add(listBox, more, buttonLayout);
             setSizeFull();
             setJustifyContentMode(JustifyContentMode.CENTER);
             setDefaultHorizontalComponentAlignment(Alignment.CENTER);
@@ -388,19 +405,29 @@ public class PatientView extends Div implements BeforeEnterObserver {
             drugSelectionDialog.setCloseOnOutsideClick(false);
             drugSelectionDialog.setCloseOnEsc(false);
 
-            Grid<Drug> drugGrid = new Grid<>(Drug.class);
+            Grid<CatalogueDrug> drugGrid = new Grid<>(CatalogueDrug.class, false);
             drugGrid.setColumns("drug_code", "dosage_unit", "dosage_value", "ingredient_name", "strength", "strength_unit");
 
-            // Fetch the list of drugs and set it as the items for the drugGrid
-            List<Drug> drugs = prmService.getDrugService().fetchDrugs();
-            System.out.println(drugs);
-            drugGrid.setItems(DataProvider.ofCollection(drugs));
+            TextField drugSearch = new TextField();
+            drugSearch.setPlaceholder("Search by drug code or ingredient name");
+            drugSearch.setClearButtonVisible(true);
+            drugSearch.setWidthFull();
+            drugSearch.setValueChangeMode(ValueChangeMode.LAZY);
+            drugSearch.addValueChangeListener(e -> drugGrid.getDataProvider().refreshAll());
+
+            // Page through the drug catalogue instead of copying it into the dialog
+            drugGrid.setItems(metrics.fetch("patient", "drugs", query -> prmService.getDrugService().listCatalogue(
+                                    PageRequest.of(query.getPage(), query.getPageSize(), VaadinSpringDataHelpers.toSpringDataSort(query)),
+                                    drugSearch.getValue())
+                            .stream()),
+                    metrics.count("patient", "drugs", query -> prmService.getDrugService().countCatalogue(drugSearch.getValue())));
 
             drugGrid.setSelectionMode(Grid.SelectionMode.SINGLE);
 
             Button selectButton = new Button("Select", e -> {
-                selectedDrug = drugGrid.asSingleSelect().getValue();
-                if (selectedDrug != null) {
+                CatalogueDrug selected = drugGrid.asSingleSelect().getValue();
+                if (selected != null) {
+                    selectedDrug = selected.toDrug();
                     updateDrugTextField();
                     drugSelectionDialog.close();
                 }
@@ -410,7 +437,7 @@ public class PatientView extends Div implements BeforeEnterObserver {
 
             HorizontalLayout buttonLayout = new HorizontalLayout(selectButton, cancelButton);
 
-            VerticalLayout dialogLayout = new VerticalLayout(drugGrid, buttonLayout);
+            VerticalLayout dialogLayout = new VerticalLayout(drugSearch, drugGrid, buttonLayout);
 
             // Set the dimensions of the dialogLayout
             dialogLayout.setWidth("700px");
@@ -449,7 +476,7 @@ public class PatientView extends Div implements BeforeEnterObserver {
 
                 // Save the selected drug before setting it to the prescription
                 if (selectedDrug != null) {
-                    Drug savedDrug = prmService.getDrugService().update(selectedDrug);
+                    Drug savedDrug = prmService.getDrugService().resolve(selectedDrug);
                     prescription.setDrug(savedDrug); // Set the saved drug to the prescription
                 }
 
@@ -467,18 +494,29 @@ public class PatientView extends Div implements BeforeEnterObserver {
         }
 
         public void clear() {
+            loaded.clear();
             listBox.setItems(Collections.emptyList());
+            more.setVisible(false);
         }
 
-        public void populate(List<Prescription> prescriptions) {
-            if (prescriptions == null) {
-                return;
-            }
-            listBox.setItems(prescriptions);
+        /**
+         * Show the prescription history of a patient, most recent first, one page at a time.
+         *
+         * @param patient Patient whose prescriptions to list.
+         */
+        public void show(Patient patient) {
+            this.selectedPatient = patient;
+            clear();
+            nextPage = 0;
+            loadNextPage();
         }
 
-        public void setSelectedPatient(Patient patient) {
-            this.selectedPatient = patient;
+        private void loadNextPage() {
+            Page<Prescription> page = prmService.getPrescriptionService().listForPatient(selectedPatient.getId(),
+                    PageRequest.of(nextPage++, HISTORY_PAGE_SIZE, HISTORY_ORDER));
+            loaded.addAll(page.getContent());
+            listBox.setItems(loaded);
+            more.setVisible(page.hasNext());
         }
     }
 
@@ -497,7 +535,7 @@ public class PatientView extends Div implements BeforeEnterObserver {
             addClassName("filter-layout");
             addClassNames(LumoUtility.Padding.Horizontal.LARGE, LumoUtility.Padding.Vertical.MEDIUM,
                     LumoUtility.BoxSizing.BORDER);
-            name.setPlaceholder("First or last name");
+            name.setPlaceholder("Name, email or health card");
 
             occupations.setItems(OCCUPATIONS);
 
@@ -553,25 +591,6 @@ public class PatientView extends Div implements BeforeEnterObserver {
         public Predicate toPredicate(Root<Patient> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
             List<Predicate> predicates = new ArrayList<>();
 
-            if (!name.isEmpty()) {
-                String lowerCaseFilter = name.getValue().toLowerCase();
-                Predicate firstNameMatch = criteriaBuilder.like(criteriaBuilder.lower(root.get("firstName")),
-                        lowerCaseFilter + "%");
-                Predicate lastNameMatch = criteriaBuilder.like(criteriaBuilder.lower(root.get("lastName")),
-                        lowerCaseFilter + "%");
-                predicates.add(criteriaBuilder.or(firstNameMatch, lastNameMatch));
-            }
-            if (!phone.isEmpty()) {
-                String databaseColumn = "phone";
-                String ignore = "- ()";
-
-                String lowerCaseFilter = ignoreCharacters(ignore, phone.getValue().toLowerCase());
-                Predicate phoneMatch = criteriaBuilder.like(
-                        ignoreCharacters(ignore, criteriaBuilder, criteriaBuilder.lower(root.get(databaseColumn))),
-                        "%" + lowerCaseFilter + "%");
-                predicates.add(phoneMatch);
-
-            }
             if (startDate.getValue() != null) {
                 String databaseColumn = "dateOfBirth";
                 predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get(databaseColumn),
@@ -602,22 +621,19 @@ public class PatientView extends Div implements BeforeEnterObserver {
             return criteriaBuilder.and(predicates.toArray(Predicate[]::new));
         }
 
-        private String ignoreCharacters(String characters, String in) {
-            String result = in;
-            for (int i = 0; i < characters.length(); i++) {
-                result = result.replace("" + characters.charAt(i), "");
-            }
-            return result;
+        /**
+         * Get the text to look up in the patient search index; name and phone are searched together.
+         */
+        public String getSearchText() {
+            return (name.getValue() + " " + phone.getValue()).trim();
         }
 
-        private Expression<String> ignoreCharacters(String characters, CriteriaBuilder criteriaBuilder,
-                Expression<String> inExpression) {
-            Expression<String> expression = inExpression;
-            for (int i = 0; i < characters.length(); i++) {
-                expression = criteriaBuilder.function("replace", String.class, expression,
-                        criteriaBuilder.literal(characters.charAt(i)), criteriaBuilder.literal(""));
-            }
-            return expression;
+        /**
+         * Check whether any criterion other than the search text is set.
+         */
+        public boolean hasCriteria() {
+            return startDate.getValue() != null || endDate.getValue() != null
+                    || !occupations.isEmpty() || !roles.isEmpty();
         }
     }
 
@@ -679,10 +695,10 @@ public class PatientView extends Div implements BeforeEnterObserver {
         grid.addColumn("allergy").setAutoWidth(true);
         grid.addColumn("healthCardId").setAutoWidth(true);
 
-        grid.setItems(query ->
+        grid.setItems(metrics.fetch("patient", "patients", query ->
                 patientService.list(
                 PageRequest.of(query.getPage(), query.getPageSize(), VaadinSpringDataHelpers.toSpringDataSort(query)),
-                filters).stream());
+                filters.getSearchText(), filters.hasCriteria() ? filters : null).stream()));
         grid.addThemeVariants(GridVariant.LUMO_NO_BORDER);
         grid.addClassNames(LumoUtility.Border.TOP, LumoUtility.BorderColor.CONTRAST_10);
 
@@ -691,13 +707,7 @@ public class PatientView extends Div implements BeforeEnterObserver {
             if (event.getValue() != null) {
                 Long id = event.getValue().getId();
                 UI.getCurrent().navigate(String.format(PATIENT_EDIT_ROUTE_TEMPLATE, id));
-                List<Prescription> prescriptionList = prmService.getPrescriptionService()
-                        .findAll()
-                        .stream()
-                        .filter(prescription -> Objects.equals(prescription.getPatient().getId(), id))
-                        .toList();
-                prescriptions.populate(prescriptionList);
-                prescriptions.setSelectedPatient(event.getValue());
+                prescriptions.show(event.getValue());
             }
             else {
                 prescriptions.clear();
@@ -3,6 +3,7 @@ package com.atlas.pharmacy.views.prescriber;
 import com.atlas.pharmacy.data.entity.Prescriber;
 import com.atlas.pharmacy.data.service.PRMService;
 import com.atlas.pharmacy.views.MainLayout;
+import com.atlas.pharmacy.metrics.DataProviderMetrics;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.dependency.Uses;
@@ -55,7 +56,7 @@ public class PrescriberView extends Div implements BeforeEnterObserver {
     private TextField postalCode;
     private Prescriber prescriber;
 
-    public PrescriberView(PRMService prmService) {
+    public PrescriberView(PRMService prmService, DataProviderMetrics metrics) {
         this.prmService = prmService;
         addClassName("prescriber-view");
 
@@ -74,11 +75,11 @@ public class PrescriberView extends Div implements BeforeEnterObserver {
         grid.addColumn("officeAddress").setAutoWidth(true);
         grid.addColumn("postalCode").setAutoWidth(true);
 
-        grid.setItems(query -> prmService.getPrescriberService().list(
+        grid.setItems(metrics.fetch("prescriber", "prescribers", query -> prmService.getPrescriberService().list(
                         PageRequest.of(
                                 query.getPage(), query.getPageSize(), VaadinSpringDataHelpers.toSpringDataSort(query)
                         )
-                ).stream()
+                ).stream())
         );
 
         grid.addThemeVariants(GridVariant.LUMO_NO_BORDER);
@@ -3,6 +3,7 @@ package com.atlas.pharmacy.views.prescription;
 import com.atlas.pharmacy.data.entity.Prescription;
 import com.atlas.pharmacy.data.service.PRMService;
 import com.atlas.pharmacy.views.MainLayout;
+import com.atlas.pharmacy.metrics.DataProviderMetrics;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.grid.Grid.SelectionMode;
 import com.vaadin.flow.component.grid.GridVariant;
@@ -26,6 +27,7 @@ import java.time.LocalDate;
 public class PrescriptionView extends Div {
 
     private final PRMService prmService;
+    private final DataProviderMetrics metrics;
     private PrescriptionSearchBar searchBar;
     private Grid<Prescription> prescriptionGrid;
     private GridLazyDataView<Prescription> prescriptionGridListDataView;
@@ -41,8 +43,9 @@ public class PrescriptionView extends Div {
     private Grid.Column<Prescription> daysRemainingColumn;
     private Grid.Column<Prescription> nextRefillDateColumn;
 
-    public PrescriptionView(PRMService prmService) {
+    public PrescriptionView(PRMService prmService, DataProviderMetrics metrics) {
         this.prmService = prmService;
+        this.metrics = metrics;
         addClassName("prescription-view");
         setSizeFull();
         createSearchBar();
@@ -65,12 +68,12 @@ public class PrescriptionView extends Div {
     }
 
     public void updateGridDataProvider(String searchString) {
-        prescriptionGridListDataView = prescriptionGrid.setItems(query -> {
+        prescriptionGridListDataView = prescriptionGrid.setItems(metrics.fetch("prescription", "prescriptions", query -> {
             return prmService.getPrescriptionService().list(
                     PageRequest.of(query.getPage(), query.getPageSize(), VaadinSpringDataHelpers.toSpringDataSort(query)),
                     searchString
             ).stream();
-        });
+        }));
     }
 
     private void createSearchBar() {
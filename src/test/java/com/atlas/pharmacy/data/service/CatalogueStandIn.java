@@ -0,0 +1,133 @@
+package com.atlas.pharmacy.data.service;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in for the upstream catalogue API, answering each request with the next scripted reply.
+ * Requests are served concurrently, so a delayed reply does not hold up a hedged one.
+ */
+final class CatalogueStandIn implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private final List<Headers> requests = new CopyOnWriteArrayList<>();
+
+    CatalogueStandIn() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            requests.add(exchange.getRequestHeaders());
+            Reply reply = replies.poll();
+            if (reply == null) {
+                reply = Reply.status(500);
+            }
+            try {
+                Thread.sleep(reply.delay().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.close();
+                return;
+            }
+            byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if (reply.etag() != null) {
+                exchange.getResponseHeaders().set("ETag", reply.etag());
+            }
+            exchange.sendResponseHeaders(reply.status(), body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (reply.stall().isZero()) {
+                    out.write(body);
+                    return;
+                }
+                out.write(body, 0, body.length / 2);
+                out.flush();
+                try {
+                    Thread.sleep(reply.stall().toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                out.write(body, body.length / 2, body.length - body.length / 2);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Queue replies for the next requests, in order; requests beyond the script are answered with a 500.
+     */
+    CatalogueStandIn reply(Reply... next) {
+        replies.addAll(List.of(next));
+        return this;
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Get the headers of every request received so far, in order.
+     */
+    List<Headers> requests() {
+        return List.copyOf(requests);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param delay Time before the headers are sent.
+     * @param stall Time the body stops halfway, after the headers and the first half were sent.
+     */
+    record Reply(int status, Duration delay, String body, String etag, Duration stall) {
+
+        /**
+         * A catalogue of one entry per ingredient, with drug codes counting up from 100000.
+         */
+        static Reply catalogue(String etag, String... ingredients) {
+            return new Reply(200, Duration.ZERO, json(ingredients), etag, Duration.ZERO);
+        }
+
+        static Reply status(int status) {
+            return new Reply(status, Duration.ZERO, "", null, Duration.ZERO);
+        }
+
+        Reply after(Duration delay) {
+            return new Reply(status, delay, body, etag, stall);
+        }
+
+        Reply stallingFor(Duration stall) {
+            return new Reply(status, delay, body, etag, stall);
+        }
+
+        static String json(String... ingredients) {
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < ingredients.length; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"dosage_unit\":\"TABLET\",\"dosage_value\":\"1\",\"drug_code\":").append(100000 + i)
+                        .append(",\"ingredient_name\":\"").append(ingredients[i])
+                        .append("\",\"strength\":\"500\",\"strength_unit\":\"MG\"}");
+            }
+            return json.append(']').toString();
+        }
+    }
+}
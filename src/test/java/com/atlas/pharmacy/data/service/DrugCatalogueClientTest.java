@@ -0,0 +1,157 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.concurrent.CircuitBreaker;
+import com.atlas.pharmacy.data.service.CatalogueStandIn.Reply;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DrugCatalogueClientTest {
+
+    // Long enough that no request is hedged unless a test delays its reply on purpose
+    private static final Duration NO_HEDGE = Duration.ofSeconds(10);
+
+    private CatalogueStandIn upstream;
+
+    @BeforeEach
+    void start() throws IOException {
+        upstream = new CatalogueStandIn();
+    }
+
+    @AfterEach
+    void stop() {
+        upstream.close();
+    }
+
+    @Test
+    void sendsValidatorsBackAndReportsNotModified() throws Exception {
+        upstream.reply(Reply.catalogue("\"v1\"", "ACETAMINOPHEN", "IBUPROFEN"), Reply.status(304));
+        DrugCatalogueClient client = client(NO_HEDGE, 1, 3, Duration.ofMinutes(5));
+
+        DrugCatalogueClient.Response first = fetch(client, null, null);
+        assertFalse(first.notModified());
+        assertEquals(2, first.index().size());
+        assertEquals("\"v1\"", first.etag());
+
+        DrugCatalogueClient.Response second = fetch(client, first.etag(), first.lastModified());
+        assertTrue(second.notModified());
+        assertNull(second.index());
+        assertEquals("\"v1\"", second.etag());
+        assertEquals("\"v1\"", upstream.requests().get(1).getFirst("If-None-Match"));
+    }
+
+    @Test
+    void hedgedRequestWinsOverSlowOne() throws Exception {
+        upstream.reply(Reply.catalogue("\"slow\"", "ACETAMINOPHEN").after(Duration.ofSeconds(5)),
+                Reply.catalogue("\"fast\"", "ACETAMINOPHEN", "IBUPROFEN"));
+        DrugCatalogueClient client = client(Duration.ofMillis(100), 1, 3, Duration.ofMinutes(5));
+
+        long started = System.nanoTime();
+        DrugCatalogueClient.Response response = fetch(client, null, null);
+
+        assertEquals("\"fast\"", response.etag());
+        assertEquals(2, response.index().size());
+        assertEquals(2, upstream.requests().size());
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(4), "waited for the slow request");
+    }
+
+    @Test
+    void retriesAfterFailedAttempt() throws Exception {
+        upstream.reply(Reply.status(500), Reply.catalogue("\"v1\"", "ACETAMINOPHEN"));
+        DrugCatalogueClient client = client(NO_HEDGE, 3, 3, Duration.ofMinutes(5));
+
+        DrugCatalogueClient.Response response = fetch(client, null, null);
+
+        assertEquals(1, response.index().size());
+        assertEquals(2, upstream.requests().size());
+        assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitState());
+    }
+
+    @Test
+    void failsOnceEveryAttemptHasFailed() {
+        upstream.reply(Reply.status(500), Reply.status(503));
+        DrugCatalogueClient client = client(NO_HEDGE, 2, 3, Duration.ofMinutes(5));
+
+        DrugCatalogueClient.CatalogueUnavailableException failure = fetchFailure(client);
+
+        assertTrue(failure.getMessage().contains("503"), failure.getMessage());
+        assertEquals(2, upstream.requests().size());
+    }
+
+    @Test
+    void failsAttemptWhoseBodyStallsAfterTheHeaders() {
+        upstream.reply(Reply.catalogue("\"v1\"", "ACETAMINOPHEN", "IBUPROFEN").stallingFor(Duration.ofSeconds(30)));
+        DrugCatalogueClient client = client(Duration.ofMillis(500), NO_HEDGE, 1, 1, Duration.ofMinutes(5));
+
+        long started = System.nanoTime();
+        DrugCatalogueClient.CatalogueUnavailableException failure = fetchFailure(client);
+
+        assertTrue(failure.getMessage().contains("in time"), failure.getMessage());
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(10), "waited for the stalled body");
+        // The breaker saw the failure
+        assertEquals(CircuitBreaker.State.OPEN, client.getCircuitState());
+    }
+
+    @Test
+    void breakerOpensAfterRepeatedFailuresAndHalfOpensAfterItsOpenDuration() throws Exception {
+        Duration open = Duration.ofMillis(300);
+        upstream.reply(Reply.status(500), Reply.status(500),
+                Reply.catalogue("\"v1\"", "ACETAMINOPHEN").after(Duration.ofMillis(500)));
+        DrugCatalogueClient client = client(NO_HEDGE, 1, 2, open);
+
+        fetchFailure(client);
+        assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitState());
+        fetchFailure(client);
+        assertEquals(CircuitBreaker.State.OPEN, client.getCircuitState());
+
+        // Refused without a request while open
+        DrugCatalogueClient.CatalogueUnavailableException refused = fetchFailure(client);
+        assertTrue(refused.getMessage().contains("suspended"), refused.getMessage());
+        assertEquals(2, upstream.requests().size());
+
+        // After the open duration a single trial request goes through; others are still refused meanwhile
+        Thread.sleep(open.toMillis() + 100);
+        CompletableFuture<DrugCatalogueClient.Response> trial = client.fetchAsync(null, null);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, client.getCircuitState());
+        assertTrue(fetchFailure(client).getMessage().contains("suspended"));
+
+        assertEquals(1, trial.get(5, TimeUnit.SECONDS).index().size());
+        assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitState());
+        assertEquals(3, upstream.requests().size());
+    }
+
+    private DrugCatalogueClient client(Duration hedgeDelay, int maxAttempts, int breakerFailures,
+                                       Duration breakerOpen) {
+        return client(Duration.ofSeconds(10), hedgeDelay, maxAttempts, breakerFailures, breakerOpen);
+    }
+
+    private DrugCatalogueClient client(Duration readTimeout, Duration hedgeDelay, int maxAttempts,
+                                       int breakerFailures, Duration breakerOpen) {
+        return new DrugCatalogueClient(upstream.url(), Duration.ofSeconds(2), readTimeout, hedgeDelay,
+                maxAttempts, Duration.ofMillis(10), breakerFailures, breakerOpen);
+    }
+
+    private static DrugCatalogueClient.Response fetch(DrugCatalogueClient client, String etag, String lastModified)
+            throws Exception {
+        return client.fetchAsync(etag, lastModified).get(10, TimeUnit.SECONDS);
+    }
+
+    private static DrugCatalogueClient.CatalogueUnavailableException fetchFailure(DrugCatalogueClient client) {
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> client.fetchAsync(null, null).get(10, TimeUnit.SECONDS));
+        return assertInstanceOf(DrugCatalogueClient.CatalogueUnavailableException.class, failure.getCause());
+    }
+}
@@ -0,0 +1,112 @@
+package com.atlas.pharmacy.data.service;
+
+import com.atlas.pharmacy.data.service.CatalogueStandIn.Reply;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class DrugCatalogueTest {
+
+    @TempDir
+    Path directory;
+
+    private CatalogueStandIn upstream;
+    private DrugCatalogueFile file;
+
+    @BeforeEach
+    void start() throws IOException {
+        upstream = new CatalogueStandIn();
+        file = new DrugCatalogueFile(new ObjectMapper(), directory.resolve("drug-catalogue.json"));
+    }
+
+    @AfterEach
+    void stop() {
+        upstream.close();
+    }
+
+    @Test
+    void servesStoredCopyWhileUpstreamFails() throws Exception {
+        Files.writeString(directory.resolve("drug-catalogue.json"), Reply.json("ACETAMINOPHEN", "IBUPROFEN"));
+        upstream.reply(Reply.status(500));
+        DrugCatalogue catalogue = catalogue();
+
+        catalogue.loadStoredCopy();
+        assertEquals(2, catalogue.getIndex().size());
+
+        catalogue.refreshAsync().get(10, TimeUnit.SECONDS);
+        assertEquals(2, catalogue.getIndex().size());
+        assertEquals(100001, catalogue.getTable().drugCode(1));
+    }
+
+    @Test
+    void readsDoNotWaitForRefresh() throws Exception {
+        Files.writeString(directory.resolve("drug-catalogue.json"), Reply.json("ACETAMINOPHEN"));
+        upstream.reply(Reply.catalogue("\"v1\"", "ACETAMINOPHEN", "IBUPROFEN", "AMOXICILLIN")
+                .after(Duration.ofSeconds(1)));
+        DrugCatalogue catalogue = catalogue();
+        catalogue.loadStoredCopy();
+
+        CompletableFuture<Void> refresh = catalogue.refreshAsync();
+        assertEquals(1, catalogue.getIndex().size());
+        assertFalse(refresh.isDone());
+        // A refresh already running is joined rather than started again
+        assertEquals(refresh, catalogue.refreshAsync());
+
+        refresh.get(10, TimeUnit.SECONDS);
+        assertEquals(3, catalogue.getIndex().size());
+        assertEquals(1, upstream.requests().size());
+    }
+
+    @Test
+    void refreshesAgainAfterDownloadStalled() throws Exception {
+        upstream.reply(Reply.catalogue("\"v1\"", "ACETAMINOPHEN").stallingFor(Duration.ofSeconds(30)),
+                Reply.catalogue("\"v2\"", "ACETAMINOPHEN", "IBUPROFEN"));
+        DrugCatalogue catalogue = catalogue(Duration.ofMillis(500));
+
+        catalogue.refreshAsync().get(10, TimeUnit.SECONDS);
+        assertEquals(0, catalogue.getIndex().size());
+
+        catalogue.refreshAsync().get(10, TimeUnit.SECONDS);
+        assertEquals(2, catalogue.getIndex().size());
+        assertEquals(2, upstream.requests().size());
+    }
+
+    @Test
+    void storesDownloadForNextStart() throws Exception {
+        upstream.reply(Reply.catalogue("\"v1\"", "ACETAMINOPHEN", "IBUPROFEN", "AMOXICILLIN"));
+        DrugCatalogue catalogue = catalogue();
+        catalogue.loadStoredCopy();
+        assertEquals(0, catalogue.getIndex().size());
+
+        catalogue.refreshAsync().get(10, TimeUnit.SECONDS);
+        assertEquals(3, catalogue.getIndex().size());
+
+        // Restarted with the upstream down
+        DrugCatalogue restarted = catalogue();
+        restarted.loadStoredCopy();
+        assertEquals(3, restarted.getIndex().size());
+        assertEquals("AMOXICILLIN", restarted.getTable().ingredientName(2));
+    }
+
+    private DrugCatalogue catalogue() {
+        return catalogue(Duration.ofSeconds(10));
+    }
+
+    private DrugCatalogue catalogue(Duration readTimeout) {
+        DrugCatalogueClient client = new DrugCatalogueClient(upstream.url(), Duration.ofSeconds(2), readTimeout,
+                Duration.ofSeconds(10), 1, Duration.ofMillis(10), 3, Duration.ofMinutes(5));
+        return new DrugCatalogue(client, file);
+    }
+}
@@ -0,0 +1,86 @@
+package com.atlas.pharmacy.metrics;
+
+import com.atlas.pharmacy.data.entity.Prescription;
+import com.atlas.pharmacy.data.service.PrescriptionService;
+import com.vaadin.flow.data.provider.CallbackDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Holds the prescription grid to its query budget with the inspector in strict mode, against the sample data.
+ */
+@SpringBootTest(properties = {
+        "atlas.query-inspector.strict=true",
+        "atlas.query-inspector.view-budgets.prescription=20",
+        "atlas.query-inspector.view-budgets.over-budget=0",
+        "atlas.drug-catalogue.initial-delay=PT24H"
+})
+class QueryInspectorStrictTest {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    private QueryInspector inspector;
+
+    @Autowired
+    private DataProviderMetrics metrics;
+
+    @Autowired
+    private PrescriptionService prescriptionService;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void prescriptionGridPageStaysWithinItsBudget() {
+        List<Prescription> page = fetchFirstPage("prescription");
+
+        assertFalse(page.isEmpty());
+        DistributionSummary queries = registry.get("atlas.request.queries").tag("view", "prescription").summary();
+        assertTrue(queries.max() > 0);
+        assertTrue(queries.max() <= 20, "ran " + queries.max() + " statements");
+    }
+
+    @Test
+    void strictModeFailsTheStatementOverBudget() {
+        // The same fetch, labelled as a view allowed no statements at all
+        Throwable thrown = assertThrows(Throwable.class, () -> fetchFirstPage("over-budget"));
+
+        assertTrue(causes(thrown).stream().anyMatch(QueryBudgetExceededException.class::isInstance),
+                () -> "expected a budget failure, got " + thrown);
+    }
+
+    // Run one request fetching the first page of the prescription grid, as PrescriptionView does
+    private List<Prescription> fetchFirstPage(String view) {
+        CallbackDataProvider.FetchCallback<Prescription, Void> fetch = metrics.fetch(view, "prescriptions",
+                query -> prescriptionService.list(PageRequest.of(query.getPage(), query.getPageSize()), "")
+                        .stream());
+        inspector.begin("GET /" + view);
+        try {
+            return fetch.fetch(new Query<>(0, PAGE_SIZE, List.of(), null, null)).collect(Collectors.toList());
+        } finally {
+            inspector.end();
+        }
+    }
+
+    private static List<Throwable> causes(Throwable thrown) {
+        List<Throwable> causes = new ArrayList<>();
+        for (Throwable cause = thrown; cause != null && !causes.contains(cause); cause = cause.getCause()) {
+            causes.add(cause);
+        }
+        return causes;
+    }
+}